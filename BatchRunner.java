@@ -0,0 +1,443 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: BatchRunner trains and tests the Hopfield net without any prompts. It runs every job of a job spec at once,
+			 one thread per job (virtual threads when the JVM has them, Java 21+, otherwise a pool with one platform thread per
+			 core). Every generate job finishes before any training job starts and every training job before any testing job,
+			 so a spec can train on the sets it generates and test the weights it trains. Testing jobs that use the same
+			 weights file share one read-only copy of the weights.
+
+Job spec, one job per line (blank lines and lines starting with # are skipped):
+	generate <seed> <dimension> <patterns> [noise %...] [ascii|binary] [--out <directory>]
+	train <training set> <weights file> [hebbian|storkey|bitpacked|sparse-t<threshold>|sparse-k<top-k>|tiled-<tile size>|
+		int8|clip-<limit>|ternary-<threshold>|binary|learn|forget]
+	test <weights file> <testing set> <results file> [mode=<mode>] [seed=<seed>] [workers=<threads>] [step=<neurons>]
+		[batch=<probes>] [epochs=<max epochs>] [stored=<images>]
+
+generate writes a training set and its testing sets with trainingFileGenerator, the same files for the same arguments.
+
+learn and forget update an existing weights file in place with the patterns of the training set instead of training a new one
+(see HopfieldTraining.Update), so only one job of a spec should update a given weights file.
+
+The weights of a test may be patterns:<training set> instead of a weights file, which recalls in pattern space (see
+PatternSpaceKernel) from the training set without ever building the weight matrix. Its results are labeled with the stored
+pattern they equal, as with the PatternIndex of a weights file.
+
+The mode of a test is one of
+	sequential   one image after the other on the job's thread (the default, seeded when a seed is given)
+	parallel     images spread over workers threads (HopfieldTesting.TestParallel)
+	pipelined    parse, recall on workers threads and write overlapped (HopfieldTesting.TestPipelined)
+	hogwild      every image recalled by workers threads at once, step neurons per step (HopfieldTesting.TestHogwild)
+	synchronous  batch images updated at once from one matrix product (HopfieldTesting.TestSynchronous)
+workers defaults to the number of cores and epochs, the most epochs run on one image, to the hopfield.max.epochs system
+property (1000 when it is not set). Without a seed the seeded modes take one from the clock and print it, so the run can
+be repeated. A test with stored=<images> fails unless at least that many results are a stored pattern (which needs the
+PatternIndex of the weights), so a spec can check what recall returns and not only that it ran.
+
+A test line may use * and ? in the file names of the weights and testing set. It then tests every weights file against every
+testing set with the same dimension, and the results argument is a directory that gets one <weights>-<testing set>.txt per pair.
+
+To run:
+	java --add-modules jdk.incubator.vector BatchRunner jobs.txt
+	java --add-modules jdk.incubator.vector BatchRunner test "trainedWeights/*.txt" "testingSets/*.txt" testResults
+	java --add-modules jdk.incubator.vector BatchRunner test patterns:trainingSets/trainingFile.txt testingSets/testingFile.txt testResults/results.txt mode=parallel seed=1
+*/
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class BatchRunner {
+	static final String PATTERN_SOURCE = "patterns:";
+	static final List<String> MODES = List.of("sequential", "parallel", "pipelined", "hogwild", "synchronous");
+	static final List<String> TEST_OPTIONS = List.of("mode", "seed", "workers", "step", "batch", "epochs", "stored");
+	static final int SYNCHRONOUS_BATCH = 64; // probes per product of a synchronous test without a batch option
+
+	List<String[]> generateJobs = new ArrayList<>();
+	List<String[]> trainJobs = new ArrayList<>();
+	List<String[]> testJobs = new ArrayList<>();
+
+	/*
+	Description: reads a job spec file, or runs the single job given on the command line
+	PARAMS: args: String[] (job spec file, or a train/test job)
+	RETURN: None
+	*/
+	public static void main(String[] args) {
+		if(args.length == 0){
+			System.out.println("Usage: java BatchRunner <job spec file>");
+			System.out.println("       java BatchRunner generate <seed> <dimension> <patterns> [noise %...] [ascii|binary] [--out <directory>]");
+			System.out.println("       java BatchRunner train <training set> <weights file> [method]");
+			System.out.println("       java BatchRunner test <weights file|patterns:<training set>> <testing set> <results file> [mode=<mode>]");
+			System.out.println("            [seed=<seed>] [workers=<threads>] [step=<neurons>] [batch=<probes>] [epochs=<max epochs>] [stored=<images>]");
+			System.out.println("       (modes: " + String.join(", ", MODES) + ")");
+			return;
+		}
+		BatchRunner runner = new BatchRunner();
+		try{
+			if(args[0].equals("generate") || args[0].equals("train") || args[0].equals("test")){
+				runner.addJob(args);
+			}else{
+				for(String line: Files.readAllLines(Path.of(args[0]))){
+					line = line.trim();
+					if(!line.isEmpty() && !line.startsWith("#")){
+						runner.addJob(line.split("\\s+"));
+					}
+				}
+			}
+		}catch(Exception e){
+			System.out.println("ERROR1: " + e);
+			return;
+		}
+		runner.run();
+	}
+
+	/*
+	Description: adds one job, expanding a test job with wildcards into one job per weights file and testing set pair
+	PARAMS: job: String[] (the words of a job line)
+	RETURN: None
+	*/
+	void addJob(String[] job) throws IOException {
+		if(job[0].equals("generate") && job.length >= 4){
+			generateJobs.add(job);
+		}else if(job[0].equals("train") && (job.length == 3 || job.length == 4)){
+			trainJobs.add(job);
+		}else if(job[0].equals("test") && job.length >= 4){
+			checkOptions(job);
+			if(!isPattern(job[1]) && !isPattern(job[2])){
+				testJobs.add(job);
+				return;
+			}
+			boolean patternSpace = job[1].startsWith(PATTERN_SOURCE);
+			String[] options = Arrays.copyOfRange(job, 4, job.length);
+			for(Path weights: expand(patternSpace ? job[1].substring(PATTERN_SOURCE.length()) : job[1])){
+				for(Path testing: expand(job[2])){
+					int dimension = patternSpace ? testingDimension(weights) : weightsDimension(weights);
+					if(dimension != testingDimension(testing)){
+						continue;
+					}
+					String results = baseName(weights) + "-" + baseName(testing) + ".txt";
+					String[] expanded = Arrays.copyOf(new String[]{"test", (patternSpace ? PATTERN_SOURCE : "") + weights,
+						testing.toString(), Path.of(job[3], results).toString()}, 4 + options.length);
+					System.arraycopy(options, 0, expanded, 4, options.length);
+					testJobs.add(expanded);
+				}
+			}
+		}else{
+			throw new IOException("not a job: " + String.join(" ", job));
+		}
+	}
+
+	/*
+	Description: runs every generate job, then every training job, then every testing job, each on its own thread
+	PARAMS: None
+	RETURN: None
+	*/
+	public void run() {
+		long start = System.nanoTime();
+		int failed = 0;
+		ExecutorService executor = newJobExecutor();
+		try{
+			List<Callable<Object>> jobs = new ArrayList<>();
+			for(String[] job: generateJobs){
+				jobs.add(() -> { trainingFileGenerator.run(Arrays.copyOfRange(job, 1, job.length)); return null; });
+			}
+			failed += runAll(executor, jobs);
+
+			jobs.clear();
+			for(String[] job: trainJobs){
+				jobs.add(() -> { train(job); return null; });
+			}
+			failed += runAll(executor, jobs);
+
+			jobs.clear();
+			for(String[] job: testJobs){
+				jobs.add(() -> { test(job); return null; });
+			}
+			failed += runAll(executor, jobs);
+		}finally{
+			executor.shutdown();
+		}
+		WeightCache cache = WeightCache.shared();
+		System.out.printf("%d jobs finished in %.1f ms, %d failed (weights files loaded %d times, reused %d times)%n",
+			generateJobs.size() + trainJobs.size() + testJobs.size(), (System.nanoTime() - start) / 1e6, failed, cache.misses, cache.hits);
+	}
+
+	/*
+	Description: runs a group of jobs at once and waits for all of them
+	PARAMS: executor: ExecutorService
+			jobs: List<Callable<Object>>
+	RETURN: int - number of jobs that failed
+	*/
+	private static int runAll(ExecutorService executor, List<Callable<Object>> jobs) {
+		int failed = 0;
+		try{
+			for(Future<Object> done: executor.invokeAll(jobs)){
+				try{
+					done.get();
+				}catch(Exception e){
+					System.out.println("ERROR5: " + e.getCause());
+					failed++;
+				}
+			}
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		return failed;
+	}
+
+	/*
+	Description: trains one weights file
+	PARAMS: job: String[] (train, training set, weights file, optional method)
+	RETURN: None
+	*/
+	void train(String[] job) {
+		String method = job.length > 3 ? job[3] : "hebbian";
+		HopfieldTraining training = new HopfieldTraining(job[1], job[2]);
+		if(method.equals("hebbian")){
+			training.Train();
+		}else if(method.equals("storkey")){
+			training.TrainStorkey();
+		}else if(method.equals("bitpacked")){
+			training.TrainBitPacked();
+		}else if(method.startsWith("sparse-t") || method.startsWith("sparse-k")){
+			training.TrainSparse(method.charAt(7) == 'k', Integer.parseInt(method.substring(8)));
+		}else if(method.startsWith("tiled-")){
+			training.TrainTiled(Integer.parseInt(method.substring(6)));
+		}else if(method.equals("int8") || method.startsWith("clip-") || method.startsWith("ternary-") || method.equals("binary")){
+			training.TrainQuantized(method);
+		}else if(method.equals("learn") || method.equals("forget")){
+			training.Update(method.equals("forget"));
+			System.out.println((method.equals("learn") ? "Learned " : "Forgot ") + job[1] + " in " + job[2]);
+			return;
+		}else{
+			throw new IllegalArgumentException("unknown training method " + method);
+		}
+		System.out.println("Trained " + job[2] + " from " + job[1]);
+	}
+
+	/*
+	Description: tests one testing set, loading the weights unless another job already has (see WeightCache), in the mode
+				 picked by the job's options, then checks the results against the stored option
+	PARAMS: job: String[] (test, weights file or patterns:<training set>, testing set, results file, options)
+	RETURN: None
+	*/
+	void test(String[] job) throws Exception {
+		String mode = option(job, "mode", "sequential");
+		int workers = Integer.parseInt(option(job, "workers", String.valueOf(Runtime.getRuntime().availableProcessors())));
+		String seedOption = option(job, "seed", null);
+		long seed = seedOption != null ? Long.parseLong(seedOption) : System.nanoTime();
+
+		HopfieldTesting testing;
+		if(job[1].startsWith(PATTERN_SOURCE)){
+			//Pattern space recall, the training set stands in for the weights it never builds
+			PatternSpaceKernel kernel = PatternSpaceKernel.readFromFile(job[1].substring(PATTERN_SOURCE.length()));
+			testing = new HopfieldTesting(kernel, job[2], job[3]);
+			testing.index = kernel.index();
+		}else{
+			testing = new HopfieldTesting(WeightCache.shared().get(job[1]), job[2], job[3]);
+			testing.index = PatternIndex.forWeights(job[1]);
+		}
+		testing.maxEpochs = Integer.parseInt(option(job, "epochs", String.valueOf(HopfieldTesting.DEFAULT_MAX_EPOCHS)));
+		if(seedOption == null && !mode.equals("sequential") && !mode.equals("synchronous")){
+			System.out.println("Testing " + job[2] + " with seed " + seed);
+		}
+
+		switch(mode){
+			case "parallel":
+				ForkJoinPool pool = new ForkJoinPool(workers);
+				try{
+					testing.TestParallel(pool, seed);
+				}finally{
+					pool.shutdown();
+				}
+				break;
+			case "pipelined":
+				testing.TestPipelined(workers, seed);
+				break;
+			case "hogwild":
+				testing.TestHogwild(workers, Integer.parseInt(option(job, "step", String.valueOf(HogwildRecall.DEFAULT_STEP))), seed);
+				break;
+			case "synchronous":
+				testing.TestSynchronous(Integer.parseInt(option(job, "batch", String.valueOf(SYNCHRONOUS_BATCH))), testing.maxEpochs);
+				break;
+			default:
+				if(seedOption != null){
+					testing.Test(seed);
+				}else{
+					testing.Test();
+				}
+		}
+
+		String stored = option(job, "stored", null);
+		if(stored != null && testing.telemetry.storedResults < Integer.parseInt(stored)){
+			throw new IllegalStateException(job[3] + " has " + testing.telemetry.storedResults + " of " + testing.telemetry.images
+				+ " results equal to a stored pattern, expected at least " + stored);
+		}
+	}
+
+	/*
+	Description: makes sure every option of a test job is a known name=value pair with a valid value
+	PARAMS: job: String[] (test, weights file, testing set, results file, options)
+	RETURN: None
+	*/
+	static void checkOptions(String[] job) throws IOException {
+		for(int k = 4; k < job.length; k++){
+			int equals = job[k].indexOf('=');
+			String name = equals > 0 ? job[k].substring(0, equals) : job[k];
+			String value = job[k].substring(equals + 1);
+			if(equals <= 0 || !TEST_OPTIONS.contains(name)){
+				throw new IOException("unknown test option " + job[k] + " (options: " + String.join(", ", TEST_OPTIONS) + ")");
+			}
+			if(name.equals("mode") && !MODES.contains(value)){
+				throw new IOException("unknown test mode " + value + " (modes: " + String.join(", ", MODES) + ")");
+			}
+			try{
+				if(name.equals("seed")){
+					Long.parseLong(value);
+				}else if(!name.equals("mode") && Integer.parseInt(value) < 1){
+					throw new IOException(name + " must be at least 1");
+				}
+			}catch(NumberFormatException e){
+				throw new IOException("not a number: " + job[k]);
+			}
+		}
+	}
+
+	/*
+	Description: returns the value of a name=value option of a job
+	PARAMS: job: String[] (the words of a job line)
+			name: String (option name)
+			otherwise: String (value when the job does not have the option)
+	RETURN: String
+	*/
+	static String option(String[] job, String name, String otherwise) {
+		for(int k = 4; k < job.length; k++){
+			if(job[k].startsWith(name + "=")){
+				return job[k].substring(name.length() + 1);
+			}
+		}
+		return otherwise;
+	}
+
+	/*
+	Description: creates the executor jobs run on, a virtual thread per job when the JVM supports it
+	PARAMS: None
+	RETURN: ExecutorService
+	*/
+	static ExecutorService newJobExecutor() {
+		try{
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}catch(ReflectiveOperationException e){
+			return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		}
+	}
+
+	/*
+	Description: checks whether a file name has wildcards
+	PARAMS: name: String
+	RETURN: boolean
+	*/
+	static boolean isPattern(String name) {
+		return name.indexOf('*') >= 0 || name.indexOf('?') >= 0;
+	}
+
+	/*
+	Description: lists the files matching a name whose last part may have wildcards, sorted by name
+	PARAMS: pattern: String
+	RETURN: List<Path> - the matching files
+	*/
+	static List<Path> expand(String pattern) throws IOException {
+		Path path = Path.of(pattern);
+		if(!isPattern(pattern)){
+			return List.of(path);
+		}
+		Path dir = path.getParent() == null ? Path.of(".") : path.getParent();
+		List<Path> files = new ArrayList<>();
+		try(DirectoryStream<Path> matches = Files.newDirectoryStream(dir, path.getFileName().toString())){
+			for(Path file: matches){
+				if(Files.isRegularFile(file) || TiledWeights.isTiled(file.toString())){
+					files.add(file);
+				}
+			}
+		}
+		Path[] sorted = files.toArray(new Path[0]);
+		Arrays.sort(sorted);
+		return Arrays.asList(sorted);
+	}
+
+	/*
+	Description: returns the neuron count of a weights file from its header or first line, without loading the weights
+	PARAMS: file: Path
+	RETURN: int - the dimension, -1 when the file cannot be read
+	*/
+	static int weightsDimension(Path file) {
+		String name = file.toString();
+		try{
+			if(TiledWeights.isTiled(name)){
+				ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(file.resolve(TiledWeights.HEADER_FILE))).order(ByteOrder.LITTLE_ENDIAN);
+				return header.getInt(8);
+			}
+			if(SparseWeights.isSparse(name) || QuantizedWeights.isQuantized(name)){
+				try(DataInputStream in = new DataInputStream(new FileInputStream(name))){
+					in.skipBytes(8);
+					return in.readInt();
+				}
+			}
+			if(WeightFile.isBinary(name)){
+				try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+					ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+					while(header.hasRemaining() && channel.read(header) > 0){
+					}
+					return header.getInt(8);
+				}
+			}
+			//Text weights have one value per neuron on every line
+			try(BufferedReader reader = Files.newBufferedReader(file)){
+				String first = reader.readLine();
+				return first == null ? -1 : first.trim().split("\\s+").length;
+			}
+		}catch(IOException e){
+			return -1;
+		}
+	}
+
+	/*
+	Description: returns the neuron count of a testing set from its header
+	PARAMS: file: Path
+	RETURN: int - the dimension, -1 when the file cannot be read
+	*/
+	static int testingDimension(Path file) {
+		try(PatternReader reader = new PatternReader(file.toString())){
+			return reader.dimension;
+		}catch(IOException e){
+			return -2;
+		}
+	}
+
+	/*
+	Description: returns a file name without its directory or extension
+	PARAMS: file: Path
+	RETURN: String
+	*/
+	static String baseName(Path file) {
+		String name = file.getFileName().toString();
+		int dot = name.lastIndexOf('.');
+		return dot > 0 ? name.substring(0, dot) : name;
+	}
+}
@@ -0,0 +1,95 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: FieldKernel holds the inner loops used to compute local fields over contiguous runs of packed weights.
+			 This scalar version is always available; VectorFieldKernel overrides it with the JDK Vector API when the
+			 jdk.incubator.vector module is present (run with --add-modules jdk.incubator.vector)
+*/
+
+public class FieldKernel {
+
+	/*
+	Description: picks the kernel for this JVM, the vector kernel when its module is loaded and the CPU has 256 bit vectors
+	PARAMS: None
+	RETURN: FieldKernel - the kernel to use
+	*/
+	static FieldKernel select() {
+		if(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()){
+			try{
+				FieldKernel vector = (FieldKernel) Class.forName("VectorFieldKernel").getDeclaredConstructor().newInstance();
+				if(vector.isSupported()){
+					return vector;
+				}
+			}catch(Throwable e){
+				// fall back to the scalar loops below
+			}
+		}
+		return new FieldKernel();
+	}
+
+	/*
+	Description: returns whether this kernel can run efficiently on this machine
+	PARAMS: None
+	RETURN: boolean
+	*/
+	boolean isSupported() {
+		return true;
+	}
+
+	/*
+	Description: dot product of a run of weights with a run of neuron values
+	PARAMS: w: byte[]/short[]/int[] (packed weights), wOff: int (first weight)
+			y: int[] (neuron values), yOff: int (first value)
+			len: int (number of products)
+	RETURN: int - sum of w[wOff + k] * y[yOff + k]
+	*/
+	int dot(byte[] w, int wOff, int[] y, int yOff, int len) {
+		int sum = 0;
+		for(int k = 0; k < len; k++){
+			sum += w[wOff + k] * y[yOff + k];
+		}
+		return sum;
+	}
+
+	int dot(short[] w, int wOff, int[] y, int yOff, int len) {
+		int sum = 0;
+		for(int k = 0; k < len; k++){
+			sum += w[wOff + k] * y[yOff + k];
+		}
+		return sum;
+	}
+
+	int dot(int[] w, int wOff, int[] y, int yOff, int len) {
+		int sum = 0;
+		for(int k = 0; k < len; k++){
+			sum += w[wOff + k] * y[yOff + k];
+		}
+		return sum;
+	}
+
+	/*
+	Description: adds scale times a run of weights to a run of local fields
+	PARAMS: w: byte[]/short[]/int[] (packed weights), wOff: int (first weight)
+			scale: int
+			fields: int[] (local fields), fOff: int (first field)
+			len: int (number of fields updated)
+	RETURN: None
+	*/
+	void axpy(byte[] w, int wOff, int scale, int[] fields, int fOff, int len) {
+		for(int k = 0; k < len; k++){
+			fields[fOff + k] += scale * w[wOff + k];
+		}
+	}
+
+	void axpy(short[] w, int wOff, int scale, int[] fields, int fOff, int len) {
+		for(int k = 0; k < len; k++){
+			fields[fOff + k] += scale * w[wOff + k];
+		}
+	}
+
+	void axpy(int[] w, int wOff, int scale, int[] fields, int fOff, int len) {
+		for(int k = 0; k < len; k++){
+			fields[fOff + k] += scale * w[wOff + k];
+		}
+	}
+}
@@ -0,0 +1,347 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: HogwildRecall recalls one image with several threads at once, for nets large enough that a single probe should use
+			 every core. All threads share the image and its local fields. Every sweep visits the neurons in a random order,
+			 cut into steps of a fixed number of neurons. Within a step each thread updates its own share of the step's neurons
+			 from the shared fields without waiting for the others (the fields do not yet include the flips of that step, so
+			 the reads are relaxed by at most one step). After a step, each thread adds the rows of the neurons that flipped
+			 to its own range of the fields, so the fields are exact again without locks or atomics. A global flip counter
+			 ends recall after a sweep with no flips, which is a proven fixed point because every neuron was checked against
+			 exact fields. Limit cycles and the epoch limit are caught as in HopfieldTesting.recall, with the fields, the
+			 order and the states seen kept in a RecallContext so recall allocates nothing per image.
+			 Results depend only on the seed, the step size and the dimension, never on the number of threads or their
+			 timing, and with a step of one neuron recall is exactly HopfieldTesting.recall. A step covering much of a small
+			 net would make its updates nearly synchronous, which can settle into 2-cycles, so the step is kept to at most
+			 1/MIN_STEPS of the neurons. The neurons of a trained Hebbian matrix are almost all coupled, so a graph colouring
+			 of the weights would give nearly one colour per neuron; bounded staleness is used instead.
+			 A worker that fails breaks the barrier so no thread waits for it forever, and recall throws its failure. The
+			 threads are gone after a failure, so every later recall throws it too.
+*/
+
+import java.util.Arrays;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.random.RandomGenerator;
+
+public class HogwildRecall implements AutoCloseable {
+	static final int DEFAULT_STEP = 256; // neurons updated from the same fields before the flips are applied
+	static final int MIN_STEPS = 64; // steps per sweep at least, so small nets do not turn into synchronous updates
+
+	WeightMatrix weights;
+	RecallContext context; // the local fields (the state of a weight matrix), the order and the states seen
+	int dimension, workers, step;
+	int[] fields, order, stepValues;
+	int[][] partials; // per thread share of W * y while the fields are built
+	AtomicIntegerArray stepFlips; // flips of each step of the current sweep
+	CyclicBarrier barrier;
+	Thread[] threads;
+	volatile boolean closed;
+	AtomicReference<Throwable> failure = new AtomicReference<>(); // first failure of any worker, set before the barrier breaks
+	volatile Thread caller; // the thread running worker 0, in recall
+
+	//The image being recalled, set by recall before the threads are released
+	int[] yArr;
+	RandomGenerator rand;
+	RecallStats stats;
+	int maxEpochs, epochs;
+	long energy, previousEnergy, sweepStart;
+	boolean done;
+
+	/*
+	Description: constructor which starts workers - 1 threads, the thread calling recall is the last worker
+	PARAMS: weights: WeightMatrix (the trained weights, only read)
+			workers: int (threads updating each image)
+			step: int (neurons per step, lowered to dimension / MIN_STEPS for small nets)
+	RETURN: None
+	*/
+	public HogwildRecall(WeightMatrix weights, int workers, int step) {
+		this.weights = weights;
+		this.workers = Math.max(1, workers);
+		this.step = Math.max(1, Math.min(step, weights.dimension / MIN_STEPS));
+		dimension = weights.dimension;
+		context = new RecallContext(weights, null);
+		fields = context.state;
+		order = context.order;
+		stepValues = new int[this.step];
+		partials = new int[this.workers][dimension];
+		stepFlips = new AtomicIntegerArray((dimension + this.step - 1) / this.step);
+		barrier = new CyclicBarrier(this.workers);
+		threads = new Thread[this.workers - 1];
+		for(int w = 1; w < this.workers; w++){
+			int worker = w;
+			threads[w - 1] = new Thread(() -> {
+				try{
+					while(true){
+						barrier.await(); //waits for the next image
+						if(closed){
+							return;
+						}
+						work(worker);
+					}
+				}catch(InterruptedException | BrokenBarrierException e){
+					//closed, or the barrier was broken by a worker that failed
+				}catch(Throwable e){
+					fail(e);
+				}
+			}, "hopfield-hogwild-" + w);
+			threads[w - 1].setDaemon(true);
+			threads[w - 1].start();
+		}
+	}
+
+	/*
+	Description: recalls one image with every worker
+	PARAMS: yArr: int[] (the input image, overwritten with the output)
+			rand: RandomGenerator (source of the update order)
+			stats: RecallStats (receives the outcome and the flips, energy and time of every sweep)
+			maxEpochs: int (most sweeps run)
+	RETURN: int - number of epochs run
+	*/
+	public int recall(int[] yArr, RandomGenerator rand, RecallStats stats, int maxEpochs) throws InterruptedException {
+		this.yArr = yArr;
+		this.rand = rand;
+		this.stats = stats;
+		this.maxEpochs = maxEpochs;
+		epochs = 0;
+		context.clearSeen();
+		caller = Thread.currentThread();
+		if(failure.get() == null){
+			try{
+				barrier.await();
+				work(0);
+				return epochs;
+			}catch(BrokenBarrierException e){
+				//a worker failed, its failure is thrown below
+			}catch(InterruptedException e){
+				if(failure.get() == null){
+					fail(e);
+					throw e;
+				}
+			}catch(Throwable e){
+				fail(e);
+			}
+		}
+		//the interrupt a failing worker sent this thread is not an interrupt of the caller
+		Thread.interrupted();
+		Throwable cause = failure.get();
+		if(cause instanceof RuntimeException){
+			throw (RuntimeException) cause;
+		}
+		if(cause instanceof Error){
+			throw (Error) cause;
+		}
+		throw new IllegalStateException("a hogwild worker stopped", cause);
+	}
+
+	/*
+	Description: records the first failure of a worker, breaks the barrier and interrupts every other worker (the thread in
+				 recall included), so none of them waits for a worker that is gone, even one that reaches the barrier after it
+				 was reset
+	PARAMS: e: Throwable (the failure)
+	RETURN: None
+	*/
+	private void fail(Throwable e) {
+		if(!failure.compareAndSet(null, e)){
+			return;
+		}
+		barrier.reset();
+		for(Thread thread: threads){
+			if(thread != Thread.currentThread()){
+				thread.interrupt();
+			}
+		}
+		if(caller != null && caller != Thread.currentThread()){
+			caller.interrupt();
+		}
+	}
+
+	/*
+	Description: the part of one image done by one worker: its share of the fields, then its share of every step
+	PARAMS: w: int (worker)
+	RETURN: None
+	*/
+	private void work(int w) throws InterruptedException, BrokenBarrierException {
+		//Fields, each worker multiplies every workers-th row into its own array then sums one range of all of them
+		int[] partial = partials[w];
+		Arrays.fill(partial, 0);
+		weights.multiplyRows(yArr, partial, w, workers);
+		barrier.await();
+		int from = (int) ((long) dimension * w / workers);
+		int to = (int) ((long) dimension * (w + 1) / workers);
+		for(int j = from; j < to; j++){
+			int sum = 0;
+			for(int[] other: partials){
+				sum += other[j];
+			}
+			fields[j] = sum;
+		}
+		barrier.await();
+		if(w == 0){
+			startImage();
+		}
+		barrier.await();
+
+		while(true){
+			for(int s = 0, p0 = 0; p0 < dimension; s++, p0 += step){
+				int p1 = Math.min(dimension, p0 + step);
+
+				//Decide, each worker owns every workers-th neuron of the step
+				int flips = 0;
+				for(int p = p0 + w; p < p1; p += workers){
+					int n = order[p];
+					int y = HopfieldTesting.activation(yArr[n], yArr[n] + fields[n]);
+					if(y != yArr[n]){
+						yArr[n] = y;
+						stepValues[p - p0] = y;
+						flips++;
+					}else{
+						stepValues[p - p0] = 0;
+					}
+				}
+				if(flips > 0){
+					stepFlips.addAndGet(s, flips);
+				}
+				barrier.await();
+
+				//Apply, every worker adds the flipped rows to its own range of the fields
+				if(stepFlips.get(s) > 0){
+					for(int p = p0; p < p1; p++){
+						if(stepValues[p - p0] != 0){
+							weights.addRow(order[p], 2 * stepValues[p - p0], fields, from, to);
+						}
+					}
+					barrier.await();
+				}
+			}
+			if(w == 0){
+				endSweep();
+			}
+			barrier.await();
+			if(done){
+				return;
+			}
+		}
+	}
+
+	/*
+	Description: records the starting energy and picks the order of the first sweep, run by worker 0 alone
+	PARAMS: None
+	RETURN: None
+	*/
+	private void startImage() {
+		//reset here, between barriers, since the other workers may still be reading done from the last image until now
+		done = false;
+		energy = energy();
+		stats.startEnergy = energy;
+		previousEnergy = energy;
+		shuffle();
+	}
+
+	/*
+	Description: ends a sweep, run by worker 0 alone: totals the flips, records the sweep and decides whether recall stops
+	PARAMS: None
+	RETURN: None
+	*/
+	private void endSweep() {
+		epochs++;
+		int flips = 0;
+		for(int s = 0; s < stepFlips.length(); s++){
+			flips += stepFlips.getAndSet(s, 0);
+		}
+		energy = energy();
+		stats.sweep(flips, energy, System.nanoTime() - sweepStart);
+
+		if(flips == 0 || isStable()){
+			stats.outcome = RecallStats.CONVERGED;
+			done = true;
+		}else if(epochs >= maxEpochs){
+			stats.outcome = RecallStats.EPOCH_LIMIT;
+			done = true;
+		}else if(energy >= previousEnergy && !context.addSeen(stateHash())){
+			stats.outcome = RecallStats.CYCLE;
+			done = true;
+		}
+		previousEnergy = energy;
+		if(!done){
+			shuffle();
+		}
+	}
+
+	/*
+	Description: starts a sweep with a new random order of the neurons
+	PARAMS: None
+	RETURN: None
+	*/
+	private void shuffle() {
+		for(int j = 0; j < dimension; j++){
+			order[j] = j;
+		}
+		HopfieldTesting.randomize(order, rand);
+		sweepStart = System.nanoTime();
+	}
+
+	/*
+	Description: returns the energy of the image, E = -1/2 sum y_i h_i
+	PARAMS: None
+	RETURN: long
+	*/
+	private long energy() {
+		long sum = 0;
+		for(int j = 0; j < dimension; j++){
+			sum -= (long) yArr[j] * fields[j];
+		}
+		return sum / 2;
+	}
+
+	/*
+	Description: hashes the image the way HopfieldTesting.recall does, XOR of the key of every +1 neuron
+	PARAMS: None
+	RETURN: long
+	*/
+	private long stateHash() {
+		long hash = 0;
+		for(int j = 0; j < dimension; j++){
+			if(yArr[j] == 1){
+				hash ^= HopfieldTesting.neuronKey(j);
+			}
+		}
+		return hash;
+	}
+
+	/*
+	Description: checks whether no neuron would change if it were updated now
+	PARAMS: None
+	RETURN: boolean
+	*/
+	private boolean isStable() {
+		for(int j = 0; j < dimension; j++){
+			if(HopfieldTesting.activation(yArr[j], yArr[j] + fields[j]) != yArr[j]){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	Description: stops the worker threads and waits for them to end
+	PARAMS: None
+	RETURN: None
+	*/
+	@Override
+	public void close() {
+		closed = true;
+		for(Thread thread: threads){
+			thread.interrupt();
+		}
+		try{
+			for(Thread thread: threads){
+				thread.join();
+			}
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+}
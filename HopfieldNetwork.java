@@ -0,0 +1,288 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: HopfieldNetwork is a trained Hopfield net to embed in other programs: trained from patterns in memory or loaded
+			 from a weights file, and never changed afterwards, so one network can be shared by every thread. Each thread
+			 recalls through its own RecallContext, which holds all the scratch buffers, so once a context has been used
+			 recall allocates nothing. HopfieldTesting recalls through the same code.
+
+	HopfieldNetwork network = HopfieldNetwork.train(patterns.iterator());
+	RecallContext ctx = new RecallContext(network, seed); // one per thread
+	network.recall(probe, ctx); // probe now holds the result, ctx.outcome() and ctx.pattern() say how it ended
+*/
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.random.RandomGenerator;
+import java.util.stream.Stream;
+
+public final class HopfieldNetwork {
+	final RecallKernel kernel;
+	final PatternIndex index; // stored patterns, null when the weights file has none
+	final int maxEpochs;
+
+	/*
+	Description: constructor for a network, the kernel and index must not be changed afterwards
+	PARAMS: kernel: RecallKernel (the trained weights)
+			index: PatternIndex (stored patterns with their attractor flags, may be null)
+			maxEpochs: int (most sweeps of any recall)
+	RETURN: None
+	*/
+	private HopfieldNetwork(RecallKernel kernel, PatternIndex index, int maxEpochs) {
+		if(maxEpochs < 1){
+			throw new IllegalArgumentException("maxEpochs must be at least 1");
+		}
+		this.kernel = kernel;
+		this.index = index;
+		this.maxEpochs = maxEpochs;
+	}
+
+	/*
+	Description: trains a network with the Hebbian rule, all patterns must have the dimension of the first
+	PARAMS: patterns: Iterator<int[]> (bipolar patterns, read once and not kept)
+	RETURN: HopfieldNetwork - the trained network
+	*/
+	public static HopfieldNetwork train(Iterator<int[]> patterns) {
+		if(!patterns.hasNext()){
+			throw new IllegalArgumentException("a network needs at least one pattern");
+		}
+		int[] pattern = patterns.next();
+		WeightMatrix weights = new WeightMatrix(pattern.length, 0);
+		PatternIndex index = new PatternIndex(pattern.length);
+		while(true){
+			if(pattern.length != weights.dimension){
+				throw new IllegalArgumentException("pattern " + index.count + " has " + pattern.length + " values, expected " + weights.dimension);
+			}
+			for(int value: pattern){
+				if(value != 1 && value != -1){
+					throw new IllegalArgumentException("pattern " + index.count + " is not bipolar");
+				}
+			}
+			weights.addOuterProduct(pattern, 1);
+			index.add(pattern);
+			if(!patterns.hasNext()){
+				break;
+			}
+			pattern = patterns.next();
+		}
+		index.markAttractors(weights);
+		return new HopfieldNetwork(weights, index, HopfieldTesting.DEFAULT_MAX_EPOCHS);
+	}
+
+	/*
+	Description: trains a network with the Hebbian rule from a stream of patterns
+	PARAMS: patterns: Stream<int[]> (bipolar patterns)
+	RETURN: HopfieldNetwork - the trained network
+	*/
+	public static HopfieldNetwork train(Stream<int[]> patterns) {
+		return train(patterns.iterator());
+	}
+
+	/*
+	Description: loads a network from a weights file of any format (see WeightCache) and the PatternIndex next to it
+	PARAMS: weightsFile: String
+	RETURN: HopfieldNetwork - the network, sharing the cached weights
+	*/
+	public static HopfieldNetwork load(String weightsFile) throws IOException {
+		return new HopfieldNetwork(WeightCache.shared().get(weightsFile), PatternIndex.forWeights(weightsFile), HopfieldTesting.DEFAULT_MAX_EPOCHS);
+	}
+
+	/*
+	Description: returns a network with the same weights that stops recall after a different number of sweeps
+	PARAMS: maxEpochs: int
+	RETURN: HopfieldNetwork
+	*/
+	public HopfieldNetwork withMaxEpochs(int maxEpochs) {
+		return new HopfieldNetwork(kernel, index, maxEpochs);
+	}
+
+	/*
+	Description: returns the number of neurons
+	PARAMS: None
+	RETURN: int
+	*/
+	public int dimension() {
+		return kernel.dimension();
+	}
+
+	/*
+	Description: recalls a bipolar image in place
+	PARAMS: probe: int[] (the image, overwritten with the result)
+			ctx: RecallContext (made for this network, used by one thread at a time)
+	RETURN: int - RecallStats.CONVERGED, CYCLE or EPOCH_LIMIT
+	*/
+	public int recall(int[] probe, RecallContext ctx) {
+		checkContext(ctx);
+		if(probe.length != kernel.dimension()){
+			throw new IllegalArgumentException("probe has " + probe.length + " values, the network has " + kernel.dimension());
+		}
+		recall(kernel, index, maxEpochs, probe, ctx.random, ctx, null);
+		ctx.pattern = -1;
+		if(index != null){
+			index.pack(probe, ctx.packed);
+			ctx.pattern = index.find(ctx.packed);
+		}
+		return ctx.outcome;
+	}
+
+	/*
+	Description: recalls an image packed into a bitset in place, bit i is set when neuron i is 1
+	PARAMS: probe: long[] (the image, at least (dimension + 63) / 64 longs, overwritten with the result)
+			ctx: RecallContext (made for this network, used by one thread at a time)
+	RETURN: int - RecallStats.CONVERGED, CYCLE or EPOCH_LIMIT
+	*/
+	public int recall(long[] probe, RecallContext ctx) {
+		checkContext(ctx);
+		int dimension = kernel.dimension();
+		int words = (dimension + 63) >>> 6;
+		if(probe.length < words){
+			throw new IllegalArgumentException("probe has " + probe.length + " words, the network needs " + words);
+		}
+		int[] values = ctx.values;
+		for(int i = 0; i < dimension; i++){
+			values[i] = (probe[i >>> 6] & (1L << i)) != 0 ? 1 : -1;
+		}
+		recall(values, ctx);
+		for(int w = 0; w < words; w++){
+			probe[w] = 0;
+		}
+		for(int i = 0; i < dimension; i++){
+			if(values[i] == 1){
+				probe[i >>> 6] |= 1L << i;
+			}
+		}
+		return ctx.outcome;
+	}
+
+	/*
+	Description: makes sure a context was made for this network's weights
+	PARAMS: ctx: RecallContext
+	RETURN: None
+	*/
+	private void checkContext(RecallContext ctx) {
+		if(ctx.kernel != kernel){
+			throw new IllegalArgumentException("the recall context was made for another network");
+		}
+	}
+
+	/*
+	Description: recalls one image, updating neurons asynchronously in random order until it reaches a fixed point.
+				 Convergence is proven from the local fields right after a sweep with flips, so no extra sweep is needed to
+				 confirm it. The network energy is kept current as neurons flip; with symmetric weights every flip lowers it,
+				 so a sweep that does not lower it is checked against earlier states to catch a limit cycle. Recall also
+				 stops after maxEpochs epochs. A probe that is a stored attractor of the PatternIndex returns after 0 epochs.
+				 Only reads the kernel and index and keeps everything else in the context, so it allocates nothing and can
+				 run on several images at once with one context each.
+	PARAMS: kernel: RecallKernel (the trained weights)
+			index: PatternIndex (stored patterns, may be null)
+			maxEpochs: int (most sweeps run)
+			yArr: int[] (the input image, overwritten with the output)
+			rand: RandomGenerator (source of the update order)
+			ctx: RecallContext (scratch buffers, receives the sweeps and outcome)
+			stats: RecallStats (receives the flips, energy and time of every sweep, may be null)
+	RETURN: int - number of epochs run
+	*/
+	static int recall(RecallKernel kernel, PatternIndex index, int maxEpochs, int[] yArr, RandomGenerator rand, RecallContext ctx, RecallStats stats) {
+		int epochsToConverge = 0;
+		ctx.sweeps = 0;
+		ctx.outcome = RecallStats.CONVERGED;
+
+		//A probe equal to a stored attractor is already a fixed point, found in O(N) without building any fields
+		if(index != null && index.isAttractor(yArr, ctx.packed)){
+			if(stats != null){
+				stats.storedAttractor = true;
+				stats.outcome = RecallStats.CONVERGED;
+			}
+			return epochsToConverge;
+		}
+
+		//Local field of every neuron (or what the kernel needs to compute it), kept current as neurons flip
+		int[] state = ctx.state;
+		kernel.initialize(yArr, state);
+
+		//Energy E = -1/2 sum y_i h_i, a flip by delta changes it by -delta * h (the diagonal is zero)
+		//The state hash XORs a fixed key per +1 neuron so a flip toggles one key
+		long energy = 0;
+		long hash = 0;
+		for(int j = 0; j < yArr.length; j++){
+			energy -= (long) yArr[j] * kernel.field(j, yArr, state);
+			if(yArr[j] == 1){
+				hash ^= HopfieldTesting.neuronKey(j);
+			}
+		}
+		energy /= 2;
+		if(stats != null){
+			stats.startEnergy = energy;
+		}
+		long previousEnergy = energy;
+		ctx.clearSeen();
+
+		//Array of all possible indicies, to be used for random order
+		int[] randomOrder = ctx.order;
+
+		while(true){
+			int flips = 0;
+			long sweepStart = stats != null ? System.nanoTime() : 0;
+			epochsToConverge++;
+			for(int j = 0; j < yArr.length; j++){
+				randomOrder[j] = j; //Sets each element equal to its index
+			}
+
+			//Randomize order of indicies (Ensures no index is repeated)
+			HopfieldTesting.randomize(randomOrder, rand);
+
+			for(int randNum: randomOrder){
+				//y = x at the start of the epoch and each neuron is visited once, so x[randNum] == y[randNum] here
+				int field = kernel.field(randNum, yArr, state);
+				int y = HopfieldTesting.activation(yArr[randNum], yArr[randNum] + field);
+				if(y != yArr[randNum]){
+					flips++;
+					energy -= 2L * y * field;
+					hash ^= HopfieldTesting.neuronKey(randNum);
+					yArr[randNum] = y;
+					kernel.flipped(randNum, 2 * y, state);
+				}
+			}
+
+			if(stats != null){
+				stats.sweep(flips, energy, System.nanoTime() - sweepStart);
+			}
+			ctx.sweeps = epochsToConverge;
+
+			//Check for convergence, a sweep without flips or a state every neuron agrees with
+			if(flips == 0 || isStable(kernel, yArr, state)){
+				ctx.outcome = RecallStats.CONVERGED;
+				break;
+			}
+			if(epochsToConverge >= maxEpochs){
+				ctx.outcome = RecallStats.EPOCH_LIMIT;
+				break;
+			}
+			if(energy >= previousEnergy && !ctx.addSeen(hash)){
+				ctx.outcome = RecallStats.CYCLE;
+				break;
+			}
+			previousEnergy = energy;
+		}
+		if(stats != null){
+			stats.outcome = ctx.outcome;
+		}
+		return epochsToConverge;
+	}
+
+	/*
+	Description: checks whether no neuron would change if it were updated now, which means the image is a fixed point
+	PARAMS: kernel: RecallKernel
+			yArr: int[] (current neuron values)
+			state: int[] (recall state of the image)
+	RETURN: boolean - true when the image is stable
+	*/
+	private static boolean isStable(RecallKernel kernel, int[] yArr, int[] state) {
+		for(int j = 0; j < yArr.length; j++){
+			if(HopfieldTesting.activation(yArr[j], yArr[j] + kernel.field(j, yArr, state)) != yArr[j]){
+				return false;
+			}
+		}
+		return true;
+	}
+}
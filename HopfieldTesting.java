@@ -1,21 +1,43 @@
 /*
 Authors: Evan Scott, Kieran Kennedy, Sean Pala
-Last Date Modified: 4/14/24
+Last Date Modified: 10/18/26
 Description: HopfieldTesting handles the testing for the Hopfield net
 */
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.random.RandomGenerator;
 
 public class HopfieldTesting {
 	String readWeightsFile, readDataFile, writeFile;
-	BufferedReader reader;
+	PatternReader reader;
 	BufferedWriter writer;
+	ResultsFile results = null; // set instead of writer when the results file ends in .res
+	StringBuilder text = new StringBuilder();
 	int inputDimension, numImages, numCols;
-	double[][] weights = null;
+	WeightMatrix weights = null;
+	RecallKernel kernel = null;
+	RecallTelemetry telemetry = null;
+	PatternIndex index = null;
+	int maxEpochs = DEFAULT_MAX_EPOCHS;
+	//Scratch buffers of recall, one set per recalling thread, made on first use once the kernel is set
+	ThreadLocal<RecallContext> contexts = ThreadLocal.withInitial(() -> new RecallContext(kernel, null));
+
+	//Most epochs run on one image unless a run sets its own, the hopfield.max.epochs system property or 1000
+	static final int DEFAULT_MAX_EPOCHS = Math.max(1, Integer.getInteger("hopfield.max.epochs", 1000));
+	static final int PIPELINE_DEPTH = 64; // images in flight per recall worker in TestPipelined
 	
 	/*
 	Description: constructor which gets the initial necessary values from param files reading
@@ -26,30 +48,77 @@ public class HopfieldTesting {
 	*/
 	public HopfieldTesting(String readWeightsFile, String readDataFile, String writeFile) {
 		this.readWeightsFile = readWeightsFile;
+		openFiles(readDataFile, writeFile);
+
+		try{
+			//Read in weights, or reuse them if this file was already loaded and has not changed since
+			kernel = WeightCache.shared().get(readWeightsFile);
+			if(kernel instanceof WeightMatrix){
+				weights = (WeightMatrix) kernel;
+			}
+			//Stored patterns written at training time, if the weights have them
+			index = PatternIndex.forWeights(readWeightsFile);
+			if(kernel.dimension() != inputDimension){
+				System.out.println("ERROR: IMPROPER SIZE");
+			}
+		}catch(Exception e){
+			System.out.println("ERROR1: " + e);
+		}
+	}
+
+	/*
+	Description: constructor which tests with an already loaded network instead of reading a weights file, for example a
+				 PatternSpaceKernel built from the training patterns
+	PARAMS: kernel: RecallKernel (the trained network, only read during testing)
+		    readDataFile: String (filename storing the data to be tested on)
+			writeFile: String (filename for results of testing to be written to)
+	RETURN: None
+	*/
+	public HopfieldTesting(RecallKernel kernel, String readDataFile, String writeFile) {
+		openFiles(readDataFile, writeFile);
+		this.kernel = kernel;
+		if(kernel instanceof WeightMatrix){
+			weights = (WeightMatrix) kernel;
+		}
+		if(kernel.dimension() != inputDimension){
+			System.out.println("ERROR: IMPROPER SIZE");
+		}
+	}
+
+	/*
+	Description: constructor for recalling images handed to recall directly, no testing or results file is opened
+	PARAMS: kernel: RecallKernel (the trained network, only read during recall)
+	RETURN: None
+	*/
+	HopfieldTesting(RecallKernel kernel) {
+		this.kernel = kernel;
+		inputDimension = kernel.dimension();
+		if(kernel instanceof WeightMatrix){
+			weights = (WeightMatrix) kernel;
+		}
+	}
+
+	/*
+	Description: opens the testing file, reading its base values, and the results file
+	PARAMS: readDataFile: String (filename storing the data to be tested on)
+			writeFile: String (filename for results of testing to be written to)
+	RETURN: None
+	*/
+	private void openFiles(String readDataFile, String writeFile){
 		this.readDataFile = readDataFile;
 		this.writeFile = writeFile;
 
 		try{
 			// get initial base values from testing file
-			reader = new BufferedReader(new FileReader(readDataFile));
-			String[] dimensionParse = reader.readLine().split("\\s+");
-			inputDimension = Integer.parseInt(dimensionParse[0]);
-			String[] numImageParse = reader.readLine().split("\\s+");
-			numImages = Integer.parseInt(numImageParse[0]);
-			writer = new BufferedWriter(new FileWriter(writeFile));
-
-			//Read in weights
-			BufferedReader weightsReader = new BufferedReader(new FileReader(readWeightsFile));
-			weights = new double[inputDimension][inputDimension];
-			for (int i = 0; i < inputDimension; i++) {
-                String[] values = weightsReader.readLine().trim().split("\\s+");
-				if(values.length != inputDimension){System.out.println("ERROR: IMPROPER SIZE");} //REMOVE LATER
-                for (int j = 0; j < values.length; j++) {
-                    weights[i][j] = Integer.parseInt(values[j]);
-                }
-            }
-			weightsReader.close();
-
+			reader = new PatternReader(readDataFile);
+			inputDimension = reader.dimension;
+			numImages = reader.numImages;
+			if(writeFile.endsWith(ResultsFile.EXTENSION)){
+				results = new ResultsFile(writeFile, inputDimension);
+			}else{
+				writer = new BufferedWriter(new FileWriter(writeFile), 1 << 16);
+			}
+			telemetry = new RecallTelemetry(writeFile);
 		}catch(Exception e){
 			System.out.println("ERROR1: " + e);
 		}
@@ -61,67 +130,570 @@ public class HopfieldTesting {
 	RETURN: None
 	*/
 	public void Test(){
-		Random rand = new Random();
+		Test(new Random());
+	}
+
+	/*
+	Description: implements testing of the hopfield net like Test, with a seeded update order so a run can be repeated
+	PARAMS: long seed - seed for the run
+	RETURN: None
+	*/
+	public void Test(long seed){
+		Test(new Random(seed));
+	}
+
+	/*
+	Description: recalls every image in turn on this thread, all images drawing their update orders from one generator
+	PARAMS: RandomGenerator rand - source of the update orders
+	RETURN: None
+	*/
+	private void Test(RandomGenerator rand){
+		int[] yArr = new int[inputDimension];
 
 		//Loop through all image vectors	
-		for(int i = 0; i < numImages; i++){
-			int[] inputArr = getInputArr();
-			int[] yArr = new int[inputArr.length];
-			int epochsToConverge = 0;
-
-			//Array of all possible indicies, to be used for random order
-			int[] randomOrder = new int[inputArr.length];
-			
-			while(true){
-				boolean change = false;
-				epochsToConverge++;
-				//Set y = x
-				for(int j = 0; j < inputArr.length; j++){
-					yArr[j] = inputArr[j];
-					randomOrder[j] = j; //Sets each element equal to its index
+		try{
+			for(int i = 0; i < numImages; i++){
+				RecallStats stats = new RecallStats(i);
+				long start = System.nanoTime();
+				getInputArr(yArr);
+				stats.parseNanos = System.nanoTime() - start;
+
+				recall(yArr, rand, stats);
+
+				start = System.nanoTime();
+				writeResult(yArr, stats);
+				stats.writeNanos = System.nanoTime() - start;
+				telemetry.record(stats);
+			}
+		}catch(Exception e){
+			System.out.println("ERROR4: " + e);
+		}
+
+		closeFiles();
+	}
+
+	/*
+	Description: implements testing of the hopfield net with the images spread across the threads of a ForkJoinPool.
+				 Images are read and recalled in batches; every image gets its own SplittableRandom seeded from the run seed and
+				 its image number, so results do not depend on the thread count. Each batch is written out in image order.
+	PARAMS: ForkJoinPool pool - pool to run the recalls on (all threads share the weights read-only)
+			long seed - seed for the run
+	RETURN: None
+	*/
+	public void TestParallel(ForkJoinPool pool, long seed){
+		int batchSize = pool.getParallelism() * 64;
+		int[][] batch = new int[Math.min(batchSize, numImages)][inputDimension];
+		RecallStats[] stats = new RecallStats[batch.length];
+
+		try{
+			for(int first = 0; first < numImages; first += batchSize){
+				int count = Math.min(batchSize, numImages - first);
+				List<Callable<Object>> recalls = new ArrayList<>(count);
+
+				for(int k = 0; k < count; k++){
+					stats[k] = new RecallStats(first + k);
+					long start = System.nanoTime();
+					getInputArr(batch[k]);
+					stats[k].parseNanos = System.nanoTime() - start;
+					int image = k;
+					SplittableRandom rand = new SplittableRandom(imageSeed(seed, first + k));
+					recalls.add(() -> recall(batch[image], rand, stats[image]));
 				}
-	
-				//Randomize order of indicies (Ensures no index is repeated)
-				randomize(randomOrder, rand);
-	
-				for(int randNum: randomOrder){
-					int yIn = calcYin(inputArr, randNum, yArr);
-					//Activation function
-					if(yIn < 0){
-						if(yArr[randNum] != -1){
-							change = true;
-						}
-						yArr[randNum] = -1;
-					}else if(yIn > 0){
-						if(yArr[randNum] != 1){
-							change = true;
+
+				try{
+					for(Future<Object> done : pool.invokeAll(recalls)){
+						done.get();
+					}
+				}catch(Exception e){
+					System.out.println("ERROR5: " + e);
+				}
+
+				for(int k = 0; k < count; k++){
+					long start = System.nanoTime();
+					writeResult(batch[k], stats[k]);
+					stats[k].writeNanos = System.nanoTime() - start;
+					telemetry.record(stats[k]);
+				}
+			}
+		}catch(Exception e){
+			System.out.println("ERROR4: " + e);
+		}
+
+		closeFiles();
+	}
+
+	/*
+	Description: implements testing of the hopfield net as a pipeline. This thread parses images, worker threads recall them
+				 and a writer thread writes the results in image order, with bounded queues between the stages so parsing and
+				 writing overlap recall and memory use stays fixed. Image buffers are recycled through a queue of free slots.
+				 Images are seeded like TestParallel, so both write the same results for the same seed.
+	PARAMS: int workers - number of recall threads (all share the weights read-only)
+			long seed - seed for the run
+	RETURN: None
+	*/
+	public void TestPipelined(int workers, long seed){
+		int capacity = Math.max(2, workers * PIPELINE_DEPTH);
+		BlockingQueue<PipelineSlot> free = new ArrayBlockingQueue<>(capacity);
+		BlockingQueue<PipelineSlot> parsed = new ArrayBlockingQueue<>(capacity + workers);
+		BlockingQueue<PipelineSlot> recalled = new ArrayBlockingQueue<>(capacity + 1);
+		for(int k = 0; k < capacity; k++){
+			free.add(new PipelineSlot(inputDimension));
+		}
+		int[] expected = {numImages}; // lowered if the testing file turns out to be short
+
+		//Every stage, the last one is this thread (the parse stage). The first stage to fail interrupts the others
+		Thread[] stages = new Thread[workers + 2];
+		stages[workers + 1] = Thread.currentThread();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		//Recall stage, a slot with no image tells a worker to stop
+		for(int w = 0; w < workers; w++){
+			stages[w] = new Thread(() -> {
+				try{
+					for(PipelineSlot slot = parsed.take(); slot.image >= 0; slot = parsed.take()){
+						recall(slot.yArr, new SplittableRandom(imageSeed(seed, slot.image)), slot.stats);
+						recalled.put(slot);
+					}
+				}catch(InterruptedException e){
+					//stopped by a failure of another stage
+				}catch(Throwable e){
+					System.out.println("ERROR5: " + e);
+					failPipeline(e, failure, stages);
+				}
+			}, "hopfield-recall-" + w);
+		}
+
+		//Write stage, results arrive out of order and are written in order, each slot goes back to the free queue once written
+		stages[workers] = new Thread(() -> {
+			PipelineSlot[] pending = new PipelineSlot[capacity];
+			try{
+				int next = 0;
+				while(true){
+					synchronized(expected){
+						if(next >= expected[0]){
+							break;
 						}
-						yArr[randNum] = 1;
+					}
+					PipelineSlot slot = recalled.take();
+					if(slot.image < 0){
+						continue;
+					}
+					pending[slot.image % capacity] = slot;
+					while(pending[next % capacity] != null && pending[next % capacity].image == next){
+						PipelineSlot done = pending[next % capacity];
+						pending[next % capacity] = null;
+						long start = System.nanoTime();
+						numCols = done.numCols;
+						writeResult(done.yArr, done.stats);
+						done.stats.writeNanos = System.nanoTime() - start;
+						telemetry.record(done.stats);
+						free.put(done);
+						next++;
 					}
 				}
-				
-				//Check for convergence
-				if(!change){
-					writeToFile(yArr, i, epochsToConverge);
+			}catch(InterruptedException e){
+				//stopped by a failure of another stage
+			}catch(Throwable e){
+				System.out.println("ERROR3: " + e);
+				failPipeline(e, failure, stages);
+			}
+		}, "hopfield-writer");
+		for(int t = 0; t <= workers; t++){
+			stages[t].start();
+		}
+
+		//Parse stage
+		int i = 0;
+		try{
+			for(; i < numImages; i++){
+				PipelineSlot slot = free.take();
+				slot.image = i;
+				slot.stats = new RecallStats(i);
+				long start = System.nanoTime();
+				if(!reader.next(slot.yArr)){
+					throw new IOException(readDataFile + " ends after " + reader.imagesRead + " of " + numImages + " images");
+				}
+				slot.numCols = reader.numCols;
+				slot.stats.parseNanos = System.nanoTime() - start;
+				parsed.put(slot);
+			}
+		}catch(IOException e){
+			System.out.println("ERROR4: " + e);
+			synchronized(expected){
+				expected[0] = i;
+			}
+			recalled.offer(new PipelineSlot(0));
+		}catch(InterruptedException e){
+			//stopped by a failure of another stage, or this thread was interrupted
+			if(failure.get() == null){
+				System.out.println("ERROR5: " + e);
+				failPipeline(e, failure, stages);
+			}
+		}catch(Throwable e){
+			System.out.println("ERROR4: " + e);
+			failPipeline(e, failure, stages);
+		}
+
+		//Stop the recall workers and wait for every stage. An interrupt sent by a failing stage is cleared, one from the caller kept
+		for(int w = 0; w < workers && failure.get() == null; w++){
+			parsed.offer(new PipelineSlot(0));
+		}
+		boolean interrupted = false;
+		for(int t = 0; t <= workers; t++){
+			while(true){
+				try{
+					stages[t].join();
 					break;
+				}catch(InterruptedException e){
+					interrupted = true;
+				}
+			}
+		}
+		interrupted |= Thread.interrupted();
+		if(failure.get() == null ? interrupted : failure.get() instanceof InterruptedException){
+			Thread.currentThread().interrupt();
+		}
+		if(failure.get() != null){
+			System.out.println("ERROR5: testing stopped after a pipeline stage failed: " + failure.get());
+		}
+
+		closeFiles();
+	}
+
+	/*
+	Description: records the first failure of a TestPipelined stage and interrupts every other stage, so no stage is left
+				 waiting on a queue that will never be filled or emptied
+	PARAMS: e: Throwable (the failure)
+			failure: AtomicReference<Throwable> (first failure of the run)
+			stages: Thread[] (every stage of the run)
+	RETURN: None
+	*/
+	private static void failPipeline(Throwable e, AtomicReference<Throwable> failure, Thread[] stages) {
+		if(failure.compareAndSet(null, e)){
+			for(Thread stage: stages){
+				if(stage != Thread.currentThread()){
+					stage.interrupt();
+				}
+			}
+		}
+	}
+
+	/*
+	Description: one image moving through the stages of TestPipelined, image is -1 for the slots that stop a stage
+	*/
+	static class PipelineSlot {
+		int image = -1, numCols;
+		int[] yArr;
+		RecallStats stats;
+
+		PipelineSlot(int dimension) {
+			yArr = new int[dimension];
+		}
+	}
+
+	/*
+	Description: implements testing of the hopfield net with every image recalled by several threads at once (see
+				 HogwildRecall), for nets so large that a single probe is worth spreading over the cores. Images are recalled
+				 one after the other, image i ordered by a SplittableRandom seeded from the run seed and i, so results depend
+				 on the seed and the step but not on the number of workers.
+	PARAMS: int workers - threads updating each image
+			int step - neurons updated from the same fields before their flips are applied (1 gives the sequential result)
+			long seed - seed for the run
+	RETURN: None
+	*/
+	public void TestHogwild(int workers, int step, long seed){
+		if(weights == null){
+			System.out.println("ERROR: hogwild testing needs a weight matrix");
+			closeFiles();
+			return;
+		}
+
+		int[] yArr = new int[inputDimension];
+		HogwildRecall hogwild = new HogwildRecall(weights, workers, step);
+
+		try{
+			for(int i = 0; i < numImages; i++){
+				RecallStats stats = new RecallStats(i);
+				long start = System.nanoTime();
+				getInputArr(yArr);
+				stats.parseNanos = System.nanoTime() - start;
+
+				//A probe equal to a stored attractor is already a fixed point
+				if(index != null && index.isAttractor(yArr, hogwild.context.packed)){
+					stats.storedAttractor = true;
+					stats.outcome = RecallStats.CONVERGED;
 				}else{
-					//Set x = y
-					for(int j = 0; j < inputArr.length; j++){
-						inputArr[j] = yArr[j];
+					hogwild.recall(yArr, new SplittableRandom(imageSeed(seed, i)), stats, maxEpochs);
+				}
+
+				start = System.nanoTime();
+				writeResult(yArr, stats);
+				stats.writeNanos = System.nanoTime() - start;
+				telemetry.record(stats);
+			}
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			System.out.println("ERROR5: " + e);
+		}catch(Exception e){
+			System.out.println("ERROR4: " + e);
+		}finally{
+			hogwild.close();
+		}
+
+		closeFiles();
+	}
+
+	/*
+	Description: implements testing of the hopfield net with synchronous updates, every neuron of every probe in a batch is
+				 updated at once from one W * S product. Synchronous dynamics can settle into a 2-cycle instead of a fixed point,
+				 so a probe stops when its state repeats the state from two epochs earlier, or after maxEpochs epochs.
+	PARAMS: int batchSize - number of probes stacked into each product
+			int maxEpochs - most epochs run on any probe
+	RETURN: None
+	*/
+	public void TestSynchronous(int batchSize, int maxEpochs){
+		if(weights == null){
+			System.out.println("ERROR: synchronous testing needs a weight matrix");
+			closeFiles();
+			return;
+		}
+
+		int[] inputArr = new int[inputDimension];
+
+		try{
+			for(int first = 0; first < numImages; first += batchSize){
+				int batch = Math.min(batchSize, numImages - first);
+				int[] states = new int[inputDimension * batch];
+				int[] previous = new int[inputDimension * batch];
+				int[] fields = new int[inputDimension * batch];
+				int[] flips = new int[batch];
+				long[] energies = new long[batch];
+				RecallStats[] imageStats = new RecallStats[batch];
+				boolean[] done = new boolean[batch];
+				boolean[] repeated = new boolean[batch];
+				int remaining = batch;
+
+				//Stack the probes neuron major
+				for(int b = 0; b < batch; b++){
+					imageStats[b] = new RecallStats(first + b);
+					long start = System.nanoTime();
+					getInputArr(inputArr);
+					imageStats[b].parseNanos = System.nanoTime() - start;
+					for(int n = 0; n < inputDimension; n++){
+						states[n * batch + b] = inputArr[n];
+						previous[n * batch + b] = inputArr[n];
 					}
 				}
+
+				while(remaining > 0){
+					long sweepStart = System.nanoTime();
+					weights.multiplyBatch(states, batch, fields);
+
+					Arrays.fill(flips, 0);
+					Arrays.fill(energies, 0);
+					Arrays.fill(repeated, true);
+					for(int n = 0; n < inputDimension; n++){
+						int row = n * batch;
+						for(int b = 0; b < batch; b++){
+							if(done[b]){
+								continue;
+							}
+							int k = row + b;
+							//The fields are those of the state the last epoch left, so this sums that state's energy
+							energies[b] -= (long) states[k] * fields[k];
+							int yIn = states[k] + fields[k];
+							//Activation function
+							int y = states[k];
+							if(yIn < 0){
+								y = -1;
+							}else if(yIn > 0){
+								y = 1;
+							}
+							if(y != states[k]){
+								flips[b]++;
+							}
+							if(y != previous[k]){
+								repeated[b] = false;
+							}
+							previous[k] = states[k];
+							states[k] = y;
+						}
+					}
+
+					//The epoch is shared by the batch, each image is given an equal part of its time
+					long sweepNanos = (System.nanoTime() - sweepStart) / remaining;
+					for(int b = 0; b < batch; b++){
+						if(done[b]){
+							continue;
+						}
+						RecallStats stats = imageStats[b];
+						settleEnergy(stats, energies[b] / 2);
+						//The energy after this epoch is only known from the next product, it stays the energy before
+						//the epoch (exact when nothing flipped) until then
+						stats.sweep(flips[b], energies[b] / 2, sweepNanos);
+						//A changed state equal to the one two epochs back is a 2-cycle
+						if(flips[b] == 0 || repeated[b] || stats.sweeps() >= maxEpochs){
+							done[b] = true;
+							stats.outcome = flips[b] == 0 ? RecallStats.CONVERGED : stats.sweeps() >= maxEpochs ? RecallStats.EPOCH_LIMIT : RecallStats.CYCLE;
+							remaining--;
+						}
+					}
+				}
+
+				//Images that stopped on an epoch with flips need the energy of the state they stopped in
+				boolean unsettled = false;
+				for(int b = 0; b < batch; b++){
+					unsettled |= imageStats[b].outcome != RecallStats.CONVERGED;
+				}
+				if(unsettled){
+					weights.multiplyBatch(states, batch, fields);
+					Arrays.fill(energies, 0);
+					for(int n = 0; n < inputDimension; n++){
+						for(int b = 0; b < batch; b++){
+							energies[b] -= (long) states[n * batch + b] * fields[n * batch + b];
+						}
+					}
+					for(int b = 0; b < batch; b++){
+						if(imageStats[b].outcome != RecallStats.CONVERGED){
+							settleEnergy(imageStats[b], energies[b] / 2);
+						}
+					}
+				}
+
+				for(int b = 0; b < batch; b++){
+					for(int n = 0; n < inputDimension; n++){
+						inputArr[n] = states[n * batch + b];
+					}
+					long start = System.nanoTime();
+					writeResult(inputArr, imageStats[b]);
+					imageStats[b].writeNanos = System.nanoTime() - start;
+					telemetry.record(imageStats[b]);
+				}
 			}
+
+		}catch(Exception e){
+			System.out.println("ERROR4: " + e);
 		}
 
+		closeFiles();
+	}
+
+	/*
+	Description: records the energy of the state a synchronous image is in, which is its start energy before any epoch and
+				 otherwise the energy after its last epoch
+	PARAMS: RecallStats stats - stats of the image
+			long energy - energy of its current state
+	RETURN: None
+	*/
+	private static void settleEnergy(RecallStats stats, long energy){
+		if(stats.sweeps() == 0){
+			stats.startEnergy = energy;
+		}else{
+			stats.energyPerSweep[stats.sweeps() - 1] = energy;
+		}
+	}
+
+	/*
+	Description: derives the seed of a single image from the run seed, spreading consecutive images apart
+	PARAMS: long seed - seed for the run
+			int image - image number
+	RETURN: long - seed for the image
+	*/
+	static long imageSeed(long seed, int image){
+		return seed + (image + 1) * 0x9E3779B97F4A7C15L;
+	}
+
+	/*
+	Description: recalls one image with asynchronous updates in random order (see HopfieldNetwork.recall), stopping at a
+				 fixed point, a limit cycle or after maxEpochs epochs. Each thread recalls with its own RecallContext, so
+				 it can run on several images at once and reuses the same buffers for every image of a thread.
+	PARAMS: int[] yArr - the input image, overwritten with the output
+			RandomGenerator rand - source of the update order
+			RecallStats stats - receives the outcome and the flips, energy and time of every sweep
+	RETURN: int - number of epochs run
+	*/
+	int recall(int[] yArr, RandomGenerator rand, RecallStats stats){
+		return HopfieldNetwork.recall(kernel, index, maxEpochs, yArr, rand, contexts.get(), stats);
+	}
+
+	/*
+	Description: Activation function, the sign of yIn or the current value when yIn is 0
+	PARAMS: int y - current value of the neuron
+			int yIn - the neuron's input
+	RETURN: int - the new value of the neuron
+	*/
+	static int activation(int y, int yIn){
+		if(yIn < 0){
+			return -1;
+		}else if(yIn > 0){
+			return 1;
+		}
+		return y;
+	}
+
+	/*
+	Description: returns the fixed random key of a neuron used in the state hash (SplitMix64 finalizer)
+	PARAMS: int neuron
+	RETURN: long - the key
+	*/
+	static long neuronKey(int neuron){
+		long z = (neuron + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/*
+	Description: writes the result of one image, noting when it did not converge and, when the weights have a PatternIndex,
+				 which stored pattern it converged to. Goes to the binary ResultsFile instead of ASCII when the results file ends in .res
+	PARAMS: int[] yArr - the generated ouput
+			RecallStats stats - stats of the image
+	RETURN: None
+	*/
+	private void writeResult(int[] yArr, RecallStats stats){
+		if(stats.outcome == RecallStats.CONVERGED && index != null){
+			index.label(yArr, stats);
+		}
+		if(results != null){
+			try{
+				results.write(yArr, numCols, stats);
+			}catch(Exception e){
+				System.out.println("ERROR3: " + e);
+			}
+		}else if(stats.outcome == RecallStats.CONVERGED && index != null){
+			writeImage(yArr, "Image " + stats.image + " : Took " + stats.sweeps() + " Epochs To Converge : "
+				+ (stats.pattern >= 0 ? "Pattern " + stats.pattern : "Spurious, Hamming Distance " + stats.distance + " To Pattern " + stats.nearest));
+		}else if(stats.outcome == RecallStats.CONVERGED){
+			writeToFile(yArr, stats.image, stats.sweeps());
+		}else{
+			writeImage(yArr, "Image " + stats.image + " : Did Not Converge After " + stats.sweeps() + " Epochs ("
+				+ (stats.outcome == RecallStats.CYCLE ? "limit cycle" : "epoch limit") + ")");
+		}
+	}
+
+	/*
+	Description: closes the testing and results files once every image has been written
+	PARAMS: None
+	RETURN: None
+	*/
+	private void closeFiles(){
 		try{ //Close the file
 			reader.close();
-			writer.close();
+			if(writer != null){
+				writer.close();
+			}
+			if(results != null){
+				results.close();
+			}
+			telemetry.close();
 		}catch(Exception e){
 			System.out.println("ERROR2: " + e);
 		}
 
+		if(telemetry != null && telemetry.unconverged > 0){
+			System.out.println("\n" + telemetry.unconverged + " image(s) did not converge, see " + telemetry.summaryFile);
+		}
 		System.out.println("\nTesting has finished. View the results of the hopfield net in the testResults subdirectory!\n");
-		
 	}
 
 	/*
@@ -131,49 +703,41 @@ public class HopfieldTesting {
 	RETURN: None
 	*/
 	private void writeToFile(int[] yArr, int curr, int epochsToConverge){
+		writeImage(yArr, "Image " + curr + " : Took " + epochsToConverge + " Epochs To Converge");
+	}
+
+	/*
+	Description: Writes a header line followed by the image drawn with 'O' for 1 and ' ' for -1
+	PARAMS: int[] yArr - the generated ouput
+			String header - line describing the image
+	RETURN: None
+	*/
+	private void writeImage(int[] yArr, String header){
 		try{
-			writer.write("Image " + curr + " : Took " + epochsToConverge + " Epochs To Converge\n");
-			String out = "";
+			//The whole image is built in one reused buffer and handed to the writer at once
+			text.setLength(0);
+			text.append(header).append('\n');
 			for(int i = 0; i < numCols; i++){
 				for(int j = 0; j < numCols; j++){
-					out += (yArr[i*numCols+j] == 1) ? "O" : " ";
+					text.append((yArr[i*numCols+j] == 1) ? 'O' : ' ');
 				}
-				writer.write(out);
-				writer.write("\n");
-				out = "";
+				text.append('\n');
 			}
-			writer.write("\n\n");
-			writer.flush();
+			text.append("\n\n");
+			writer.append(text);
 		}catch(Exception e){
 			System.out.println("ERROR3: " + e);
 		}
 	}
 
 
-	/*
-	Description: Calculates yIn using the given index and yArr
-	PARAMS: int[] inputArr - array conisiting of the input values
-			int index - the current index
-			int[] yArr - array containing the current y values
-	RETURN: int yIn - the calculated yIn
-	*/
-	private int calcYin(int[] inputArr, int index, int[] yArr){
-        int yIn = 0;
-        yIn += inputArr[index];
-        for(int i = 0; i < weights.length; i++){
-            yIn += yArr[i] * weights[i][index];
-        }
-        return yIn;
-    }
-
-
 	/*
 	Description: Randomizes the order of an array using the Fisher-Yates shuffle
 	PARAMS: int[] randomOrder - array consisting of integers 1-inputSize
-			Random rand - a Random object
+			RandomGenerator rand - a Random or SplittableRandom object
 	RETURN: None
 	*/
-    private void randomize(int[] randomOrder, Random rand){
+    static void randomize(int[] randomOrder, RandomGenerator rand){
         for(int i = randomOrder.length - 1; i > 0; i--){
             int j = rand.nextInt(i + 1);
             int temp = randomOrder[i];
@@ -184,28 +748,15 @@ public class HopfieldTesting {
 
 
 	/*
-	Description: retrieves the data in testing file line by line
-	PARAMS: None
-	RETURN: int[] - array containing testing data
+	Description: retrieves the next image vector of the testing file
+	PARAMS: int[] inputArr - reused array the image is decoded into
+	RETURN: None
 	*/
-	private int[] getInputArr(){
-		int[] inputArr = new int[inputDimension];
-
-		try{
-			int readIn = 0;
-			reader.readLine(); //remove blank line
-			while(readIn < inputDimension){
-				String currLine = reader.readLine();
-				char[] inputs = currLine.toCharArray();
-				numCols = inputs.length;
-				for(int i = 0; i < inputs.length; i++) {
-                	inputArr[readIn++] = (inputs[i] == 'O') ? 1 : -1; //Convert 'O' to 1,'' to -1 from image vector
-            	}
-			}
-		}catch(Exception e){
-			System.out.println("ERROR4: " + e);
+	private void getInputArr(int[] inputArr) throws IOException {
+		if(!reader.next(inputArr)){
+			throw new IOException(readDataFile + " ends after " + reader.imagesRead + " of " + numImages + " images");
 		}
-		return inputArr;
+		numCols = reader.numCols;
 	}
 
 }
\ No newline at end of file
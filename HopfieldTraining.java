@@ -1,17 +1,21 @@
 /*
 Authors: Evan Scott, Kieran Kennedy, Sean Pala
-Last Date Modified: 4/14/24
+Last Date Modified: 10/18/26
 Description: HopfieldTraining handles the training for the discrete Hopfield net
 */
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.FileWriter;
-import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.ObjIntConsumer;
 
 public class HopfieldTraining {
 	int inputDimension, numImages;
-	BufferedReader reader;
+	PatternReader reader;
+	PatternIndex index;
 	String readFile, writeFile;
 	
 	/*
@@ -26,11 +30,10 @@ public class HopfieldTraining {
 
 		// get initial base values from file
 		try{
-			reader = new BufferedReader(new FileReader(readFile));
-			String[] dimensionParse = reader.readLine().split("\\s+");
-			inputDimension = Integer.parseInt(dimensionParse[0]);
-			String[] numImageParse = reader.readLine().split("\\s+");
-			numImages = Integer.parseInt(numImageParse[0]);
+			reader = new PatternReader(readFile);
+			inputDimension = reader.dimension;
+			numImages = reader.numImages;
+			index = new PatternIndex(inputDimension);
 		}catch(Exception e){
 			System.out.println("ERROR1: " + e);
 		}
@@ -43,103 +46,347 @@ public class HopfieldTraining {
 	RETURN: None
 	*/
 	public void Train() {
-		int[][] weights = weights = new int[inputDimension][inputDimension];;
+		WeightMatrix weights = trainHebbian();
 
-		// loop through training image vectors
-		for(int i = 0; i < numImages; i++){
-
-        	int[] inputArr = getInputArr();
+		// write weights out to provided file (diagonals are not stored so they are written as zero)
+		if(weights != null){
+			writeToFile(weights);
+		}
+	}
 
+	/*
+	Description: reads every training image, adding it to the PatternIndex and its outer product to the weights. Train and
+				 the trainers that reduce the Hebbian weights (TrainSparse, TrainQuantized) start from this matrix
+	PARAMS: None
+	RETURN: WeightMatrix - the Hebbian weights, null when the training file could not be read
+	*/
+	private WeightMatrix trainHebbian() {
+		WeightMatrix weights = new WeightMatrix(inputDimension, 0);
+		boolean read = readPatterns((inputArr, i) -> {
+			index.add(inputArr);
 			updateWeightMatrix(inputArr, weights);
+		});
+		return read ? weights : null;
+	}
+
+	/*
+	Description: trains the Hopfield net with the Storkey learning rule instead of the Hebbian outer product, which stores
+				 more patterns for the same number of neurons. Writes the same weights file format as Train.
+	PARAMS: None
+	RETURN: None
+	*/
+	public void TrainStorkey() {
+		StorkeyWeights storkey = new StorkeyWeights(inputDimension);
+		boolean read = readPatterns((inputArr, i) -> {
+			index.add(inputArr);
+			storkey.addPattern(inputArr);
+		});
+
+		// write weights out to provided file
+		if(read){
+			writeToFile(storkey.toWeightMatrix());
 		}
+	}
 
-		// close the file
-		try{ 
-			reader.close();
+	/*
+	Description: trains the Hopfield net like Train, then prunes the weights and writes them in the sparse (CSR) format of
+				 SparseWeights. Recall over the pruned weights only visits the weights that were kept
+	PARAMS: topK: boolean (true to keep the limit largest weights per neuron, false to keep weights of magnitude limit or more)
+			limit: int (weights kept per neuron, or the smallest magnitude kept)
+	RETURN: None
+	*/
+	public void TrainSparse(boolean topK, int limit) {
+		WeightMatrix weights = trainHebbian();
+		if(weights == null){
+			return;
+		}
+
+		// prune then write the kept weights out
+		try{
+			SparseWeights sparse = topK ? SparseWeights.pruneTopK(weights, limit) : SparseWeights.prune(weights, limit);
+			sparse.writeToFile(writeFile);
+			writeIndex(sparse);
 		}catch(Exception e){
-			System.out.println("ERROR2: " + e);
+			System.out.println("ERROR3: " + e);
 		}
-		
-		// zero out the diagonals in weight matrix
-		zeroDiagonals(weights);
+	}
 
-		// write weights out to provided file
-		writeToFile(weights);
+	/*
+	Description: trains the Hopfield net with Hebbian learning, then writes the weights quantized (see QuantizedWeights):
+				 saturated to int8 or another limit, reduced to ternary -1/0/+1 or to sign-only binary. Ternary and binary
+				 weights are written in the .qnt format, clipped weights in the format picked by the file name
+	PARAMS: mode: String (int8, clip-<limit>, ternary-<threshold> or binary)
+	RETURN: None
+	*/
+	public void TrainQuantized(String mode) {
+		WeightMatrix weights = trainHebbian();
+		if(weights == null){
+			return;
+		}
+
+		// quantize then write the reduced weights out
+		try{
+			RecallKernel quantized = QuantizedWeights.quantize(weights, mode);
+			QuantizedWeights.write(quantized, writeFile);
+			writeIndex(quantized);
+		}catch(Exception e){
+			System.out.println("ERROR3: " + e);
+		}
 	}
 
 	/*
-	Description: writes the trained weights of Hopfield net out to specified file.
-	PARAMS: weights: int[][] (2D array storing the trained weights)
+	Description: trains the Hopfield net into a TiledWeights directory (writeFile) instead of a weights file, for nets whose
+				 matrix does not fit in the heap. The training file is streamed once per band of tiles and the weights are
+				 accumulated in memory mapped tile files, so the heap only holds one pattern. No PatternIndex is written, it
+				 would hold every pattern in the heap.
+	PARAMS: tileSize: int (rows and columns per tile)
 	RETURN: None
 	*/
-	private void writeToFile(int[][] weights){
+	public void TrainTiled(int tileSize) {
+		// the tiles stream the training file themselves, once per band
+		closeReader();
 		try{
-			BufferedWriter writer = new BufferedWriter(new FileWriter(writeFile));
-			for(int i = 0; i < weights.length; i++){
-				for(int j = 0; j < weights[i].length; j++){
-					writer.write(weights[i][j] + " ");
-				}
-				if(i+1 != weights.length){
-					writer.write("\n");
-				}
+			TiledWeights.train(readFile, writeFile, tileSize);
+		}catch(Exception e){
+			System.out.println("ERROR4: " + e);
+		}
+	}
+
+	/*
+	Description: updates an existing trained weights file (writeFile) with the patterns of the training file instead of retraining
+				 from scratch. Each pattern's outer product is added, or subtracted to unlearn it, and the file is replaced in place.
+				 The stored pattern count is kept current in binary weights files (text files do not record it), and so is the
+				 PatternIndex when the weights have one.
+	PARAMS: forget: boolean (true to unlearn the patterns, false to learn them)
+	RETURN: None
+	*/
+	public void Update(boolean forget) {
+		WeightMatrix weights;
+		try{
+			weights = WeightMatrix.readFromFile(writeFile);
+			index = PatternIndex.forWeights(writeFile);
+		}catch(Exception e){
+			System.out.println("ERROR1: " + e);
+			closeReader();
+			return;
+		}
+		if(weights.dimension != inputDimension){
+			System.out.println("ERROR: IMPROPER SIZE");
+			closeReader();
+			return;
+		}
+
+		boolean read = readPatterns((inputArr, i) -> {
+			weights.addOuterProduct(inputArr, forget ? -1 : 1);
+			if(index != null && forget){
+				index.remove(inputArr);
+			}else if(index != null){
+				index.add(inputArr);
+			}
+		});
+		if(!read){
+			return;
+		}
+
+		// write next to the old weights then swap, so a failed write never leaves a half written weights file
+		try{
+			Path target = Path.of(writeFile);
+			Path updated = target.resolveSibling("updating-" + target.getFileName());
+			weights.writeToFile(updated.toString());
+			Files.move(updated, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			if(index != null){
+				Path indexFile = Path.of(PatternIndex.fileFor(writeFile));
+				Path updatedIndex = indexFile.resolveSibling("updating-" + indexFile.getFileName());
+				index.markAttractors(weights);
+				index.writeToFile(updatedIndex.toString(), writeFile);
+				Files.move(updatedIndex, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
 			}
-			writer.flush();
-			writer.close();
 		}catch(Exception e){
 			System.out.println("ERROR3: " + e);
 		}
 	}
 
 	/*
-	Description: updates the training weights by matrix multiplication
-	PARAMS: weights: int[][] (2D array storing the trained weights)
-			inputArr: int[] (1D array storing data to be transposed and matrix multiplied)
+	Description: trains the Hopfield net in parallel. The patterns are read once and split into shards across a ForkJoinPool,
+				 each shard accumulates its own partial matrix and the partials are added back together as the tasks join.
+				 Integer addition is exact so the weights file is identical to the one written by Train.
+	PARAMS: pool: ForkJoinPool (pool to run the shards on)
 	RETURN: None
 	*/
-	private void updateWeightMatrix(int[] inputArr, int[][] weights){
-		int dimensions = inputArr.length;
+	public void TrainParallel(ForkJoinPool pool) {
+		byte[][] patterns = new byte[numImages][];
+		boolean read = readPatterns((inputArr, i) -> {
+			index.add(inputArr);
+			patterns[i] = new byte[inputDimension];
+			for(int j = 0; j < inputDimension; j++){
+				patterns[i][j] = (byte) inputArr[j];
+			}
+		});
+		if(!read){
+			return;
+		}
+
+		// one shard per worker, so at most parallelism partial matrices are live at once
+		int shardSize = Math.max(1, (numImages + pool.getParallelism() - 1) / pool.getParallelism());
+		WeightMatrix weights = pool.invoke(new TrainShard(patterns, 0, numImages, shardSize, inputDimension));
 
-		for (int i = 0; i < dimensions; i++) {
-        	for (int j = 0; j < dimensions; j++) {
-            	weights[i][j] += inputArr[i] * inputArr[j];
-        	}
-    	}
+		// write weights out to provided file (diagonals are not stored so they are written as zero)
+		writeToFile(weights);
 	}
 
 	/*
-	Description: sets the diagonals of the weight matrix to 0
-	PARAMS: weights: int[][] (2D array storing the trained weights)
-	RETURN: NONE
+	Description: fork-join task that trains a partial weight matrix from a range of patterns
 	*/
-	private void zeroDiagonals(int[][] weights){
-		for(int i = 0; i < weights.length; i++){
-			weights[i][i] = 0;
+	static class TrainShard extends RecursiveTask<WeightMatrix> {
+		private static final long serialVersionUID = 1L;
+
+		byte[][] patterns;
+		int from, to, shardSize, dimension;
+
+		TrainShard(byte[][] patterns, int from, int to, int shardSize, int dimension) {
+			this.patterns = patterns;
+			this.from = from;
+			this.to = to;
+			this.shardSize = shardSize;
+			this.dimension = dimension;
+		}
+
+		/*
+		Description: splits the range in half until it is a single shard, then accumulates its outer products
+		PARAMS: None
+		RETURN: WeightMatrix - partial weights of patterns [from, to)
+		*/
+		@Override
+		protected WeightMatrix compute() {
+			if(to - from <= shardSize){
+				WeightMatrix partial = new WeightMatrix(dimension, 0);
+				int[] inputArr = new int[dimension];
+				for(int i = from; i < to; i++){
+					for(int j = 0; j < dimension; j++){
+						inputArr[j] = patterns[i][j];
+					}
+					partial.addOuterProduct(inputArr, 1);
+				}
+				return partial;
+			}
+			int mid = (from + to) >>> 1;
+			TrainShard left = new TrainShard(patterns, from, mid, shardSize, dimension);
+			TrainShard right = new TrainShard(patterns, mid, to, shardSize, dimension);
+			left.fork();
+			WeightMatrix sum = right.compute();
+			sum.add(left.join());
+			return sum;
 		}
 	}
 
 	/*
-	Description: retrieves the data in testing file line by line
+	Description: trains the Hopfield net from bit-packed patterns. Every pattern is stored column-wise as bits so each weight
+				 is computed with XOR and popcount instead of accumulating an outer product per pattern. Writes the same weights file as Train,
+				 binary when the file name ends in .bin.
 	PARAMS: None
-	RETURN: int[] - array containing testing data
+	RETURN: None
+	*/
+	public void TrainBitPacked() {
+		PatternColumns columns = new PatternColumns(inputDimension, numImages);
+		boolean read = readPatterns((inputArr, i) -> {
+			index.add(inputArr);
+			columns.setPattern(i, inputArr);
+		});
+		if(!read){
+			return;
+		}
+
+		// fill the packed matrix from the popcounts, then write it in the format picked by the file name like Train
+		WeightMatrix weights = new WeightMatrix(inputDimension, numImages);
+		for(int i = 0; i < inputDimension; i++){
+			for(int j = i + 1; j < inputDimension; j++){
+				weights.set(i, j, columns.weight(i, j));
+			}
+		}
+		weights.numPatterns = numImages;
+		writeToFile(weights);
+	}
+
+	/*
+	Description: writes the trained weights of Hopfield net out to specified file.
+	PARAMS: weights: WeightMatrix (packed matrix storing the trained weights)
+	RETURN: None
+	*/
+	private void writeToFile(WeightMatrix weights){
+		try{
+			weights.writeToFile(writeFile);
+			writeIndex(weights);
+		}catch(Exception e){
+			System.out.println("ERROR3: " + e);
+		}
+	}
+
+	/*
+	Description: writes the stored patterns next to the weights (see PatternIndex), marking which are attractors of the weights
+	PARAMS: kernel: RecallKernel (the trained weights)
+	RETURN: None
 	*/
-	private int[] getInputArr(){
+	private void writeIndex(RecallKernel kernel) throws IOException {
+		index.markAttractors(kernel);
+		index.writeToFile(PatternIndex.fileFor(writeFile), writeFile);
+	}
+
+	/*
+	Description: updates the training weights with the outer product of the pattern
+	PARAMS: inputArr: int[] (1D array storing data to be transposed and matrix multiplied)
+			weights: WeightMatrix (packed matrix storing the trained weights)
+	RETURN: None
+	*/
+	private void updateWeightMatrix(int[] inputArr, WeightMatrix weights){
+		weights.addOuterProduct(inputArr, 1);
+	}
+
+	/*
+	Description: reads every image of the training file, handing each one to a trainer, then closes the file
+	PARAMS: trainer: ObjIntConsumer<int[]> (takes each image and its number, the array is reused for the next image)
+	RETURN: boolean - false when the training file could not be read, after printing why
+	*/
+	private boolean readPatterns(ObjIntConsumer<int[]> trainer){
 		int[] inputArr = new int[inputDimension];
 
+		// loop through training image vectors
 		try{
-			int readIn = 0;
-			reader.readLine(); //remove blank line
-			while(readIn < inputDimension){
-				String currLine = reader.readLine();
-				char[] inputs = currLine.toCharArray();
-				for(int i = 0; i < inputs.length; i++) {
-                	inputArr[readIn++] = (inputs[i] == 'O') ? 1 : -1; //Convert 'O' to 1,'' to -1 from image vector
-            	}
+			for(int i = 0; i < numImages; i++){
+				getInputArr(inputArr);
+				trainer.accept(inputArr, i);
 			}
 		}catch(Exception e){
 			System.out.println("ERROR4: " + e);
+			closeReader();
+			return false;
+		}
+
+		// close the file
+		closeReader();
+		return true;
+	}
+
+	/*
+	Description: retrieves the next image vector of the training file
+	PARAMS: inputArr: int[] (reused array the image is decoded into)
+	RETURN: None
+	*/
+	private void getInputArr(int[] inputArr) throws IOException {
+		if(!reader.next(inputArr)){
+			throw new IOException(readFile + " ends after " + reader.imagesRead + " of " + numImages + " images");
 		}
-		
-		return inputArr;
 	}
-}
 
+	/*
+	Description: closes the training file
+	PARAMS: None
+	RETURN: None
+	*/
+	private void closeReader(){
+		try{ 
+			reader.close();
+		}catch(Exception e){
+			System.out.println("ERROR2: " + e);
+		}
+	}
+}
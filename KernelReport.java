@@ -0,0 +1,100 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: KernelReport holds what the accuracy/memory reports of the reduced weight forms (SparseWeights, QuantizedWeights)
+			 share: every image of a testing set is recalled through the full precision matrix and through each reduced form
+			 with the same update order, so any difference in the results comes from the reduction.
+*/
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+public class KernelReport {
+	static final long SEED = 42;
+	static final String COLUMNS = "bytes,memory_ratio,same_as_dense,mean_hamming,recall_ms";
+
+	int[][] probes, dense;
+	long denseBytes, denseNanos;
+
+	/*
+	Description: constructor which reads the testing set and recalls it through the full precision weights
+	PARAMS: weights: WeightMatrix (full precision weights)
+			testingFile: String (testing set)
+	RETURN: None
+	*/
+	public KernelReport(WeightMatrix weights, String testingFile) throws IOException {
+		probes = readImages(testingFile, weights.dimension);
+		dense = new int[probes.length][];
+		denseBytes = weights.bytes();
+		//the first pass only warms up the JIT so the timed passes of every form start from compiled code
+		recallAll(weights, dense);
+		denseNanos = recallAll(weights, dense);
+		System.out.printf("dense: %d neurons, %d bytes, %d images, %.3f ms recall%n", weights.dimension, denseBytes, probes.length, denseNanos / 1e6);
+	}
+
+	/*
+	Description: recalls every image through a reduced form and returns its report columns
+	PARAMS: kernel: RecallKernel (the reduced weights)
+	RETURN: String - bytes, memory ratio to the full matrix, fraction of images recalled exactly as with the full matrix,
+					 mean Hamming distance to the full matrix result and the recall time
+	*/
+	public String compare(RecallKernel kernel) {
+		int[][] results = new int[probes.length][];
+		long nanos = recallAll(kernel, results);
+		int same = 0;
+		long hamming = 0;
+		for(int i = 0; i < probes.length; i++){
+			int distance = 0;
+			for(int j = 0; j < results[i].length; j++){
+				if(results[i][j] != dense[i][j]){
+					distance++;
+				}
+			}
+			if(distance == 0){
+				same++;
+			}
+			hamming += distance;
+		}
+		return String.format("%d,%.2f,%.4f,%.3f,%.3f", kernel.bytes(), (double) denseBytes / kernel.bytes(),
+			probes.length == 0 ? 0 : (double) same / probes.length, probes.length == 0 ? 0 : (double) hamming / probes.length, nanos / 1e6);
+	}
+
+	/*
+	Description: reads every image of a testing set
+	PARAMS: readFile: String (testing set)
+			dimension: int (neurons of the weights)
+	RETURN: int[][] - the images
+	*/
+	static int[][] readImages(String readFile, int dimension) throws IOException {
+		try(PatternReader reader = new PatternReader(readFile)){
+			if(reader.dimension != dimension){
+				throw new IOException(readFile + " has " + reader.dimension + " values per image, the weights have " + dimension);
+			}
+			int[][] images = new int[reader.numImages][dimension];
+			for(int i = 0; i < reader.numImages; i++){
+				if(!reader.next(images[i])){
+					throw new IOException(readFile + " ends after " + i + " of " + reader.numImages + " images");
+				}
+			}
+			return images;
+		}
+	}
+
+	/*
+	Description: recalls copies of every probe, seeding image i the same way for every kernel
+	PARAMS: kernel: RecallKernel (the weights being measured)
+			results: int[][] (receives the recalled images)
+	RETURN: long - nanoseconds spent recalling
+	*/
+	long recallAll(RecallKernel kernel, int[][] results) {
+		HopfieldTesting testing = new HopfieldTesting(kernel);
+		long nanos = 0;
+		for(int i = 0; i < probes.length; i++){
+			results[i] = probes[i].clone();
+			long start = System.nanoTime();
+			testing.recall(results[i], new SplittableRandom(HopfieldTesting.imageSeed(SEED, i)), new RecallStats(i));
+			nanos += System.nanoTime() - start;
+		}
+		return nanos;
+	}
+}
@@ -0,0 +1,68 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: PatternColumns stores a set of bipolar patterns column-wise as bitsets (one bitset per neuron, one bit per pattern)
+*/
+
+public class PatternColumns {
+	int dimension, numPatterns, wordsPerColumn;
+	long[] bits;
+
+	/*
+	Description: constructor which allocates room for every pattern, all bits start cleared (-1)
+	PARAMS: dimension: int (number of neurons in each pattern)
+			numPatterns: int (number of patterns to store)
+	RETURN: None
+	*/
+	public PatternColumns(int dimension, int numPatterns) {
+		this.dimension = dimension;
+		this.numPatterns = numPatterns;
+		wordsPerColumn = (numPatterns + 63) >>> 6;
+		bits = new long[dimension * wordsPerColumn];
+	}
+
+	/*
+	Description: stores one pattern, setting the bit of every neuron that is +1
+	PARAMS: pattern: int (index of the pattern being stored)
+			inputArr: int[] (bipolar pattern values)
+	RETURN: None
+	*/
+	public void setPattern(int pattern, int[] inputArr) {
+		int word = pattern >>> 6;
+		long mask = 1L << pattern;
+		for(int i = 0; i < dimension; i++){
+			if(inputArr[i] == 1){
+				bits[i * wordsPerColumn + word] |= mask;
+			}else{
+				bits[i * wordsPerColumn + word] &= ~mask;
+			}
+		}
+	}
+
+	/*
+	Description: returns the value of a neuron in a stored pattern
+	PARAMS: neuron: int
+			pattern: int
+	RETURN: int - 1 or -1
+	*/
+	public int get(int neuron, int pattern) {
+		return ((bits[neuron * wordsPerColumn + (pattern >>> 6)] >>> pattern) & 1L) != 0 ? 1 : -1;
+	}
+
+	/*
+	Description: computes the Hebbian weight between two neurons, sum over patterns of x_i * x_j.
+				 Matching bits contribute +1 and differing bits -1, so the sum is P - 2 * popcount(col_i XOR col_j)
+	PARAMS: i: int (first neuron)
+			j: int (second neuron)
+	RETURN: int - the weight between neuron i and neuron j
+	*/
+	public int weight(int i, int j) {
+		int offI = i * wordsPerColumn;
+		int offJ = j * wordsPerColumn;
+		int differ = 0;
+		for(int w = 0; w < wordsPerColumn; w++){
+			differ += Long.bitCount(bits[offI + w] ^ bits[offJ + w]);
+		}
+		return numPatterns - 2 * differ;
+	}
+}
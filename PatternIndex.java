@@ -0,0 +1,413 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: PatternIndex keeps every stored (training) pattern as a bitset, hashed into an open addressing table so an image
+			 can be matched to a stored pattern in O(N). Training marks which stored patterns are attractors (fixed points of the
+			 trained weights): a probe equal to one of those is already converged and needs no sweeps. After recall the index
+			 labels a result with the stored pattern it equals, or with the Hamming distance to the nearest one when it is a
+			 spurious state. The index is written next to the weights as <weights file>.idx: magic "HOPI", version, dimension,
+			 pattern count, the CRC32 of the weights it was written for (see checksum), then per pattern its hash, attractor
+			 flag and bitset, and a CRC32 of everything before it. An index whose weights have been rewritten since (by a
+			 converter or a trainer that writes no index) would label results wrongly and skip recall on patterns that may no
+			 longer be attractors, so it is only loaded while the weights still have that checksum. Copying or touching the
+			 weights keeps their checksum, and so keeps the index.
+*/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+public class PatternIndex {
+	static final String EXTENSION = ".idx";
+	static final int MAGIC = 0x49504F48; // "HOPI"
+	static final int VERSION = 1;
+
+	int dimension, words, count;
+	long[] bits = new long[0]; // pattern p is words [p * words, (p + 1) * words)
+	long[] hashes = new long[0];
+	boolean[] attractors = new boolean[0];
+	int[] table; // pattern id + 1 per slot, 0 when empty
+	long weightsChecksum = -1; // checksum of the weights it was written for, -1 until it is written or read
+
+	/*
+	Description: constructor for an empty index
+	PARAMS: dimension: int (number of neurons in each pattern)
+	RETURN: None
+	*/
+	public PatternIndex(int dimension) {
+		this.dimension = dimension;
+		words = (dimension + 63) >>> 6;
+		table = new int[16];
+	}
+
+	/*
+	Description: returns the index file that belongs to a weights file
+	PARAMS: weightsFile: String
+	RETURN: String
+	*/
+	static String fileFor(String weightsFile) {
+		return weightsFile + EXTENSION;
+	}
+
+	/*
+	Description: loads the index written next to a weights file, as long as the weights are still the ones it was written for
+	PARAMS: weightsFile: String
+	RETURN: PatternIndex - the index, null when the weights have none or it is stale
+	*/
+	public static PatternIndex forWeights(String weightsFile) throws IOException {
+		String indexFile = fileFor(weightsFile);
+		if(!Files.exists(Path.of(indexFile))){
+			return null;
+		}
+		PatternIndex index = readFromFile(indexFile);
+		if(index.weightsChecksum != checksum(weightsFile)){
+			System.out.println(indexFile + " was written for other weights than " + weightsFile + " and is ignored");
+			return null;
+		}
+		return index;
+	}
+
+	/*
+	Description: returns the CRC32 of a weights file. The binary (.bin), sparse (.csr) and quantized (.qnt) formats already
+				 store one, so it is read from the file. Text weights and tiled directories store none, so their bytes are
+				 checksummed (a tiled directory's header then every band)
+	PARAMS: weightsFile: String
+	RETURN: long
+	*/
+	static long checksum(String weightsFile) throws IOException {
+		Path path = Path.of(weightsFile);
+		if(TiledWeights.isTiled(weightsFile)){
+			CRC32 crc = new CRC32();
+			update(crc, path.resolve(TiledWeights.HEADER_FILE));
+			for(int band = 0; Files.isRegularFile(TiledWeights.bandFile(path, band)); band++){
+				update(crc, TiledWeights.bandFile(path, band));
+			}
+			return crc.getValue();
+		}
+		if(WeightFile.isBinary(weightsFile)){
+			return readLong(path, WeightFile.CHECKSUM_OFFSET, ByteOrder.LITTLE_ENDIAN);
+		}
+		if(SparseWeights.isSparse(weightsFile) || QuantizedWeights.isQuantized(weightsFile)){
+			return readLong(path, Files.size(path) - 8, ByteOrder.BIG_ENDIAN);
+		}
+		CRC32 crc = new CRC32();
+		update(crc, path);
+		return crc.getValue();
+	}
+
+	/*
+	Description: adds every byte of a file to a checksum
+	PARAMS: crc: CRC32
+			file: Path
+	RETURN: None
+	*/
+	private static void update(CRC32 crc, Path file) throws IOException {
+		try(FileInputStream in = new FileInputStream(file.toFile())){
+			byte[] buffer = new byte[1 << 16];
+			for(int read = in.read(buffer); read > 0; read = in.read(buffer)){
+				crc.update(buffer, 0, read);
+			}
+		}
+	}
+
+	/*
+	Description: reads one long of a file
+	PARAMS: file: Path
+			position: long (byte offset)
+			order: ByteOrder (order the long was written in)
+	RETURN: long
+	*/
+	private static long readLong(Path file, long position, ByteOrder order) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+			ByteBuffer value = ByteBuffer.allocate(8).order(order);
+			while(value.hasRemaining() && channel.read(value, position + value.position()) > 0){
+			}
+			if(value.hasRemaining()){
+				throw new IOException(file + " ends before its checksum");
+			}
+			return value.getLong(0);
+		}
+	}
+
+	/*
+	Description: packs a bipolar image into a bitset, bit i is set when value i is 1
+	PARAMS: yArr: int[] (bipolar image)
+			packed: long[] (receives the bitset, at least words long)
+	RETURN: None
+	*/
+	void pack(int[] yArr, long[] packed) {
+		Arrays.fill(packed, 0, words, 0);
+		for(int i = 0; i < dimension; i++){
+			if(yArr[i] == 1){
+				packed[i >>> 6] |= 1L << i;
+			}
+		}
+	}
+
+	/*
+	Description: hashes a bitset
+	PARAMS: packed: long[]
+			offset: int (first word)
+	RETURN: long - the hash
+	*/
+	long hash(long[] packed, int offset) {
+		long h = dimension;
+		for(int w = 0; w < words; w++){
+			h = (h ^ packed[offset + w]) * 0x9E3779B97F4A7C15L;
+			h ^= h >>> 32;
+		}
+		return h;
+	}
+
+	/*
+	Description: adds a stored pattern, its attractor flag is set by markAttractors
+	PARAMS: pattern: int[] (bipolar pattern)
+	RETURN: None
+	*/
+	public void add(int[] pattern) {
+		if(count * words == bits.length){
+			int capacity = Math.max(16, count * 2);
+			bits = Arrays.copyOf(bits, capacity * words);
+			hashes = Arrays.copyOf(hashes, capacity);
+			attractors = Arrays.copyOf(attractors, capacity);
+		}
+		long[] packed = new long[words];
+		pack(pattern, packed);
+		System.arraycopy(packed, 0, bits, count * words, words);
+		hashes[count] = hash(packed, 0);
+		count++;
+		if(count * 2 > table.length){
+			rebuildTable();
+		}else{
+			insert(count - 1);
+		}
+	}
+
+	/*
+	Description: removes one copy of a stored pattern, used when a pattern is unlearned
+	PARAMS: pattern: int[] (bipolar pattern)
+	RETURN: boolean - false when the pattern was not stored
+	*/
+	public boolean remove(int[] pattern) {
+		long[] packed = new long[words];
+		pack(pattern, packed);
+		int id = find(packed);
+		if(id < 0){
+			return false;
+		}
+		count--;
+		System.arraycopy(bits, (id + 1) * words, bits, id * words, (count - id) * words);
+		System.arraycopy(hashes, id + 1, hashes, id, count - id);
+		System.arraycopy(attractors, id + 1, attractors, id, count - id);
+		rebuildTable();
+		return true;
+	}
+
+	/*
+	Description: rehashes every pattern into a table with at least twice as many slots as patterns
+	PARAMS: None
+	RETURN: None
+	*/
+	private void rebuildTable() {
+		int size = 16;
+		while(size < count * 2){
+			size <<= 1;
+		}
+		table = new int[size];
+		for(int p = 0; p < count; p++){
+			insert(p);
+		}
+	}
+
+	/*
+	Description: puts a pattern in the first free slot of its probe sequence, keeping the first copy of duplicate patterns
+	PARAMS: id: int (pattern id)
+	RETURN: None
+	*/
+	private void insert(int id) {
+		int mask = table.length - 1;
+		for(int slot = (int) hashes[id] & mask; ; slot = (slot + 1) & mask){
+			if(table[slot] == 0){
+				table[slot] = id + 1;
+				return;
+			}
+			if(hashes[table[slot] - 1] == hashes[id] && equals(table[slot] - 1, bits, id * words)){
+				return;
+			}
+		}
+	}
+
+	/*
+	Description: compares a stored pattern with a bitset
+	PARAMS: id: int (pattern id)
+			packed: long[]
+			offset: int (first word of the bitset)
+	RETURN: boolean - true when they are equal
+	*/
+	private boolean equals(int id, long[] packed, int offset) {
+		return Arrays.equals(bits, id * words, (id + 1) * words, packed, offset, offset + words);
+	}
+
+	/*
+	Description: finds the stored pattern equal to a bitset
+	PARAMS: packed: long[] (image as a bitset)
+	RETURN: int - the lowest id of an equal pattern, -1 when none is equal
+	*/
+	public int find(long[] packed) {
+		long h = hash(packed, 0);
+		int mask = table.length - 1;
+		for(int slot = (int) h & mask; table[slot] != 0; slot = (slot + 1) & mask){
+			int id = table[slot] - 1;
+			if(hashes[id] == h && equals(id, packed, 0)){
+				return id;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	Description: returns whether an image equals a stored pattern that is a fixed point of the weights
+	PARAMS: yArr: int[] (bipolar image)
+			packed: long[] (scratch of at least words longs)
+	RETURN: boolean
+	*/
+	public boolean isAttractor(int[] yArr, long[] packed) {
+		pack(yArr, packed);
+		int id = find(packed);
+		return id >= 0 && attractors[id];
+	}
+
+	/*
+	Description: labels a recalled image with the stored pattern it equals, or the nearest stored pattern and its distance
+	PARAMS: yArr: int[] (recalled image)
+			stats: RecallStats (receives the pattern id and the Hamming distance, 0 for a stored pattern)
+	RETURN: None
+	*/
+	public void label(int[] yArr, RecallStats stats) {
+		long[] packed = new long[words];
+		pack(yArr, packed);
+		int id = find(packed);
+		if(id >= 0){
+			stats.pattern = id;
+			stats.distance = 0;
+			return;
+		}
+		stats.pattern = -1;
+		stats.distance = -1;
+		for(int p = 0; p < count; p++){
+			int distance = 0;
+			for(int w = 0; w < words; w++){
+				distance += Long.bitCount(bits[p * words + w] ^ packed[w]);
+			}
+			if(stats.distance < 0 || distance < stats.distance){
+				stats.distance = distance;
+				stats.nearest = p;
+			}
+		}
+	}
+
+	/*
+	Description: marks which stored patterns are fixed points of a trained network, no neuron would change if updated
+	PARAMS: kernel: RecallKernel (the trained weights)
+	RETURN: None
+	*/
+	public void markAttractors(RecallKernel kernel) {
+		int[] pattern = new int[dimension];
+		int[] state = kernel.newState();
+		for(int p = 0; p < count; p++){
+			for(int i = 0; i < dimension; i++){
+				pattern[i] = (bits[p * words + (i >>> 6)] & (1L << i)) != 0 ? 1 : -1;
+			}
+			kernel.initialize(pattern, state);
+			boolean stable = true;
+			for(int i = 0; i < dimension && stable; i++){
+				int yIn = pattern[i] + kernel.field(i, pattern, state);
+				stable = yIn == 0 || (yIn > 0) == (pattern[i] > 0);
+			}
+			attractors[p] = stable;
+		}
+	}
+
+	/*
+	Description: writes the index, stamped with the weights file as it is now, so write the weights first
+	PARAMS: writeFile: String
+			weightsFile: String (the weights the index belongs to)
+	RETURN: None
+	*/
+	public void writeToFile(String writeFile, String weightsFile) throws IOException {
+		weightsChecksum = checksum(weightsFile);
+		CRC32 crc = new CRC32();
+		try(DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(writeFile), 1 << 16), crc))){
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(dimension);
+			out.writeInt(count);
+			out.writeLong(weightsChecksum);
+			for(int p = 0; p < count; p++){
+				out.writeLong(hashes[p]);
+				out.writeBoolean(attractors[p]);
+				for(int w = 0; w < words; w++){
+					out.writeLong(bits[p * words + w]);
+				}
+			}
+			out.flush();
+			out.writeLong(crc.getValue());
+		}
+	}
+
+	/*
+	Description: reads an index written by writeToFile
+	PARAMS: readFile: String
+	RETURN: PatternIndex - the index
+	*/
+	public static PatternIndex readFromFile(String readFile) throws IOException {
+		CRC32 crc = new CRC32();
+		try(DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(new FileInputStream(readFile), 1 << 16), crc))){
+			if(in.readInt() != MAGIC){
+				throw new IOException(readFile + " is not a pattern index file");
+			}
+			int version = in.readInt();
+			if(version != VERSION){
+				throw new IOException(readFile + " has unsupported pattern index version " + version);
+			}
+			PatternIndex index = new PatternIndex(in.readInt());
+			int count = in.readInt();
+			index.weightsChecksum = in.readLong();
+			int words = index.words;
+			index.bits = new long[count * words];
+			index.hashes = new long[count];
+			index.attractors = new boolean[count];
+			for(int p = 0; p < count; p++){
+				index.hashes[p] = in.readLong();
+				index.attractors[p] = in.readBoolean();
+				for(int w = 0; w < words; w++){
+					index.bits[p * words + w] = in.readLong();
+				}
+				if(index.hash(index.bits, p * words) != index.hashes[p]){
+					throw new IOException(readFile + " has a wrong hash for pattern " + p);
+				}
+			}
+			long expected = crc.getValue();
+			if(in.readLong() != expected){
+				throw new IOException(readFile + " failed its checksum, the index is corrupt");
+			}
+			index.count = count;
+			index.rebuildTable();
+			return index;
+		}
+	}
+}
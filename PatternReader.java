@@ -0,0 +1,266 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: PatternReader streams the image vectors out of a training or testing set file. The file is read through a
+			 FileChannel into one reused ByteBuffer and each row of 'O'/' ' characters is decoded straight into a buffer
+			 supplied by the caller, so no Strings or arrays are allocated per image and memory use does not grow with the file.
+			 Bit-packed binary sets written by trainingFileGenerator (magic "HOPP") are read the same way, one image being
+			 (dimension + 63) / 64 little endian longs.
+*/
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class PatternReader implements Closeable {
+	static final int BUFFER_BYTES = 1 << 16;
+	static final int MAGIC = 0x50504F48; // "HOPP" read little endian
+	static final int VERSION = 1;
+
+	String file;
+	FileChannel channel;
+	ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+	int dimension, numImages, numCols, imagesRead;
+	boolean binary;
+
+	/*
+	Description: constructor which opens the file and reads the header (dimension line then number of images line)
+	PARAMS: file: String (filename of the training/testing set)
+	RETURN: None
+	*/
+	public PatternReader(String file) throws IOException {
+		this.file = file;
+		channel = FileChannel.open(Path.of(file), StandardOpenOption.READ);
+		buffer.flip();
+		try{
+			if(fill(4) && buffer.getInt(buffer.position()) == MAGIC){
+				readBinaryHeader();
+			}else{
+				dimension = readHeaderValue("dimension");
+				numImages = readHeaderValue("number of images");
+			}
+		}catch(IOException e){
+			channel.close();
+			throw e;
+		}
+	}
+
+	/*
+	Description: decodes the next image into inputArr, 'O' becomes 1 and anything else -1
+	PARAMS: inputArr: int[] (reused buffer of at least dimension values)
+	RETURN: boolean - false when the file has no more images
+	*/
+	public boolean next(int[] inputArr) throws IOException {
+		if(binary){
+			if(imagesRead == numImages){
+				return false;
+			}
+			long word = 0;
+			for(int i = 0; i < dimension; i++){
+				if((i & 63) == 0){
+					word = readLong();
+				}
+				inputArr[i] = (word & (1L << i)) != 0 ? 1 : -1;
+			}
+			imagesRead++;
+			return true;
+		}
+		if(!skipLine()){ //remove blank line
+			return false;
+		}
+		int readIn = 0;
+		while(readIn < dimension){
+			int cols = 0;
+			int c;
+			while((c = read()) != '\n' && c != -1){
+				if(c == '\r'){
+					continue;
+				}
+				if(readIn == dimension){
+					throw new IOException(file + ": image " + imagesRead + " has more than " + dimension + " values");
+				}
+				inputArr[readIn++] = (c == 'O') ? 1 : -1; //Convert 'O' to 1,'' to -1 from image vector
+				cols++;
+			}
+			numCols = cols;
+			if(c == -1 && readIn < dimension){
+				throw new IOException(file + ": image " + imagesRead + " ends after " + readIn + " of " + dimension + " values");
+			}
+		}
+		imagesRead++;
+		return true;
+	}
+
+	/*
+	Description: decodes the next image into a bitset, bit i is set when value i is 1 ('O')
+	PARAMS: bits: long[] (reused buffer of at least (dimension + 63) / 64 words)
+	RETURN: boolean - false when the file has no more images
+	*/
+	public boolean next(long[] bits) throws IOException {
+		if(binary){
+			if(imagesRead == numImages){
+				return false;
+			}
+			for(int w = 0; w < (dimension + 63) >>> 6; w++){
+				bits[w] = readLong();
+			}
+			imagesRead++;
+			return true;
+		}
+		if(!skipLine()){ //remove blank line
+			return false;
+		}
+		for(int w = 0; w < (dimension + 63) >>> 6; w++){
+			bits[w] = 0;
+		}
+		int readIn = 0;
+		while(readIn < dimension){
+			int cols = 0;
+			int c;
+			while((c = read()) != '\n' && c != -1){
+				if(c == '\r'){
+					continue;
+				}
+				if(readIn == dimension){
+					throw new IOException(file + ": image " + imagesRead + " has more than " + dimension + " values");
+				}
+				if(c == 'O'){
+					bits[readIn >>> 6] |= 1L << readIn;
+				}
+				readIn++;
+				cols++;
+			}
+			numCols = cols;
+			if(c == -1 && readIn < dimension){
+				throw new IOException(file + ": image " + imagesRead + " ends after " + readIn + " of " + dimension + " values");
+			}
+		}
+		imagesRead++;
+		return true;
+	}
+
+	/*
+	Description: closes the file
+	PARAMS: None
+	RETURN: None
+	*/
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/*
+	Description: reads the header of a binary set: magic, version, dimension, number of images and values per row
+	PARAMS: None
+	RETURN: None
+	*/
+	private void readBinaryHeader() throws IOException {
+		if(!fill(20)){
+			throw new IOException(file + ": binary header is cut short");
+		}
+		buffer.getInt();
+		int version = buffer.getInt();
+		if(version != VERSION){
+			throw new IOException(file + " has unsupported binary pattern format version " + version);
+		}
+		dimension = buffer.getInt();
+		numImages = buffer.getInt();
+		numCols = buffer.getInt();
+		binary = true;
+	}
+
+	/*
+	Description: returns the next long of a binary set
+	PARAMS: None
+	RETURN: long
+	*/
+	private long readLong() throws IOException {
+		if(!fill(8)){
+			throw new IOException(file + ": image " + imagesRead + " of " + numImages + " is cut short");
+		}
+		return buffer.getLong();
+	}
+
+	/*
+	Description: makes sure the buffer holds at least the given number of bytes, reading more from the channel if needed
+	PARAMS: bytes: int
+	RETURN: boolean - false if the file ends first
+	*/
+	private boolean fill(int bytes) throws IOException {
+		if(buffer.remaining() >= bytes){
+			return true;
+		}
+		buffer.compact();
+		while(buffer.position() < bytes && channel.read(buffer) >= 0){
+		}
+		buffer.flip();
+		return buffer.remaining() >= bytes;
+	}
+
+	/*
+	Description: parses the integer at the start of a header line, ignoring the description after it
+	PARAMS: name: String (what the value is, for the error message)
+	RETURN: int - the value
+	*/
+	private int readHeaderValue(String name) throws IOException {
+		int c = read();
+		while(c == ' ' || c == '\t'){
+			c = read();
+		}
+		if(c < '0' || c > '9'){
+			throw new IOException(file + ": header is missing the " + name);
+		}
+		long value = 0;
+		while(c >= '0' && c <= '9'){
+			value = value * 10 + (c - '0');
+			if(value > Integer.MAX_VALUE){
+				throw new IOException(file + ": " + name + " is too large");
+			}
+			c = read();
+		}
+		while(c != '\n' && c != -1){
+			c = read();
+		}
+		return (int) value;
+	}
+
+	/*
+	Description: skips the rest of the current line
+	PARAMS: None
+	RETURN: boolean - false if the end of the file was reached before anything was skipped
+	*/
+	private boolean skipLine() throws IOException {
+		int c = read();
+		if(c == -1){
+			return false;
+		}
+		while(c != '\n' && c != -1){
+			c = read();
+		}
+		return true;
+	}
+
+	/*
+	Description: returns the next byte of the file, refilling the buffer from the channel when it runs out
+	PARAMS: None
+	RETURN: int - the byte, or -1 at the end of the file
+	*/
+	private int read() throws IOException {
+		if(!buffer.hasRemaining()){
+			buffer.clear();
+			int n;
+			do{
+				n = channel.read(buffer);
+			}while(n == 0);
+			buffer.flip();
+			if(n < 0){
+				return -1;
+			}
+		}
+		return buffer.get();
+	}
+}
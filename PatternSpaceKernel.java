@@ -0,0 +1,128 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: PatternSpaceKernel recalls with Hebbian weights without ever building the N x N matrix. With
+			 w_ij = sum over patterns of x_i x_j (zero diagonal) the local field is
+				h_j = sum over patterns u of x_uj * m_u - P * y_j,  with overlap m_u = x_u . y
+			 so the kernel keeps the P overlaps of each image current as neurons flip (O(P) per flip) and computes a field in
+			 O(P) from the bit-packed training patterns. Memory is N * P bits instead of N^2 weights, which makes nets far too
+			 large for a weight matrix usable as long as the pattern count is well below N.
+*/
+
+import java.io.IOException;
+
+public class PatternSpaceKernel implements RecallKernel {
+	PatternColumns columns;
+
+	/*
+	Description: constructor which recalls from an already loaded set of patterns
+	PARAMS: columns: PatternColumns (the stored patterns)
+	RETURN: None
+	*/
+	public PatternSpaceKernel(PatternColumns columns) {
+		this.columns = columns;
+	}
+
+	/*
+	Description: loads every pattern of a training set file as bitsets
+	PARAMS: readFile: String (training set file)
+	RETURN: PatternSpaceKernel - the kernel
+	*/
+	public static PatternSpaceKernel readFromFile(String readFile) throws IOException {
+		try(PatternReader reader = new PatternReader(readFile)){
+			PatternColumns columns = new PatternColumns(reader.dimension, reader.numImages);
+			int[] inputArr = new int[reader.dimension];
+			for(int i = 0; i < reader.numImages; i++){
+				if(!reader.next(inputArr)){
+					throw new IOException(readFile + " ends after " + i + " of " + reader.numImages + " images");
+				}
+				columns.setPattern(i, inputArr);
+			}
+			return new PatternSpaceKernel(columns);
+		}
+	}
+
+	/*
+	Description: builds the PatternIndex of the stored patterns, so results recalled in pattern space are labeled and stored
+				 attractors short-circuited as with a weights file and its index
+	PARAMS: None
+	RETURN: PatternIndex - the index, attractors marked against this kernel
+	*/
+	public PatternIndex index() {
+		PatternIndex index = new PatternIndex(columns.dimension);
+		int[] pattern = new int[columns.dimension];
+		for(int p = 0; p < columns.numPatterns; p++){
+			for(int j = 0; j < columns.dimension; j++){
+				pattern[j] = columns.get(j, p);
+			}
+			index.add(pattern);
+		}
+		index.markAttractors(this);
+		return index;
+	}
+
+	public int dimension() {
+		return columns.dimension;
+	}
+
+	/*
+	Description: the state is the overlap of every pattern followed by the sum of all overlaps
+	*/
+	public int[] newState() {
+		return new int[columns.numPatterns + 1];
+	}
+
+	public void initialize(int[] yArr, int[] state) {
+		int numPatterns = columns.numPatterns;
+		for(int u = 0; u <= numPatterns; u++){
+			state[u] = 0;
+		}
+		for(int i = 0; i < columns.dimension; i++){
+			flipped(i, yArr[i], state);
+		}
+	}
+
+	/*
+	Description: sum over patterns of x_uj * m_u, computed as 2 * (sum of overlaps of patterns with bit j set) - (sum of all overlaps)
+	*/
+	public int field(int neuron, int[] yArr, int[] state) {
+		long[] bits = columns.bits;
+		int offset = neuron * columns.wordsPerColumn;
+		int set = 0;
+		for(int w = 0; w < columns.wordsPerColumn; w++){
+			long word = bits[offset + w];
+			while(word != 0){
+				set += state[(w << 6) + Long.numberOfTrailingZeros(word)];
+				word &= word - 1;
+			}
+		}
+		int numPatterns = columns.numPatterns;
+		return 2 * set - state[numPatterns] - numPatterns * yArr[neuron];
+	}
+
+	/*
+	Description: every overlap moves by delta * x_u,neuron
+	*/
+	public void flipped(int neuron, int delta, int[] state) {
+		long[] bits = columns.bits;
+		int offset = neuron * columns.wordsPerColumn;
+		int numPatterns = columns.numPatterns;
+		int setCount = 0;
+		for(int u = 0; u < numPatterns; u++){
+			state[u] -= delta;
+		}
+		for(int w = 0; w < columns.wordsPerColumn; w++){
+			long word = bits[offset + w];
+			setCount += Long.bitCount(word);
+			while(word != 0){
+				state[(w << 6) + Long.numberOfTrailingZeros(word)] += 2 * delta;
+				word &= word - 1;
+			}
+		}
+		state[numPatterns] += delta * (2 * setCount - numPatterns);
+	}
+
+	public long bytes() {
+		return (long) columns.bits.length * 8;
+	}
+}
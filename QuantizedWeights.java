@@ -0,0 +1,367 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: QuantizedWeights keeps a trained WeightMatrix reduced to one or two bits per weight, every row of the full N x N
+			 matrix as bitsets of 64 weights per long. Ternary weights are -1, 0 or +1 (a weight of magnitude below the
+			 threshold becomes 0) and are kept as a plus and a minus bitset per row. Binary weights keep only the sign (bit set
+			 for +1, a 0 weight counts as +1) in one bitset per row. The recall state of an image is the image itself as a
+			 bitset (bit j set when neuron j is 1, two ints per long), so the field of a neuron is a few popcounts over its row:
+				ternary: h = 2 * (|P & s| - |M & s|) + |M| - |P|
+				binary:  h = N - 2 * |B ^ s| - b_ii * y_i (the diagonal weight is taken back out)
+			 and a flip only toggles one bit of the state. The saturating int8 mode needs no kernel of its own: it is a
+			 WeightMatrix clipped to [-127, 127] (see WeightMatrix.clip), recalled by the byte field kernels.
+			 The file format (.qnt) is: magic "HOPQ", version, dimension, stored pattern count, mode, threshold, the row
+			 bitsets (plus then minus for ternary) and a CRC32 of everything before it.
+
+To report recall accuracy and memory of each mode against the full precision weights (ternary-<t> zeroes weights of
+magnitude below t, clip-<n> saturates at n):
+	java --add-modules jdk.incubator.vector QuantizedWeights trainedWeights/weights100-5.txt testingSets/testingFile100-5-10.txt int8 ternary-1 ternary-3 binary
+	java QuantizedWeights <weights> binary <output.qnt> writes the quantized weights instead
+*/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+public class QuantizedWeights implements RecallKernel {
+	static final String EXTENSION = ".qnt";
+	static final int MAGIC = 0x51504F48; // "HOPQ"
+	static final int VERSION = 1;
+	static final int TERNARY = 2, BINARY = 1; // bits per weight
+
+	int dimension, words, mode, threshold;
+	long numPatterns;
+	long[] plus; // row i is words [i * words, (i + 1) * words): the +1 weights, or the sign bits for binary
+	long[] minus; // the -1 weights of ternary rows, null for binary
+	int[] bias; // per row, |M| - |P| for ternary and N for binary
+
+	/*
+	Description: constructor which allocates all zero rows
+	PARAMS: dimension: int (number of neurons)
+			mode: int (TERNARY or BINARY)
+			threshold: int (smallest magnitude kept as +1/-1 by ternary, 0 for binary)
+	RETURN: None
+	*/
+	QuantizedWeights(int dimension, int mode, int threshold) {
+		this.dimension = dimension;
+		this.mode = mode;
+		this.threshold = threshold;
+		words = (dimension + 63) >>> 6;
+		if((long) dimension * words > Integer.MAX_VALUE - 8){
+			throw new IllegalArgumentException("dimension " + dimension + " is too large for quantized rows");
+		}
+		plus = new long[dimension * words];
+		minus = mode == TERNARY ? new long[dimension * words] : null;
+		bias = new int[dimension];
+	}
+
+	/*
+	Description: reduces every weight to -1, 0 or +1
+	PARAMS: weights: WeightMatrix (the trained weights)
+			threshold: int (weights of smaller magnitude become 0, at least 1)
+	RETURN: QuantizedWeights - the ternary weights
+	*/
+	public static QuantizedWeights ternary(WeightMatrix weights, int threshold) {
+		if(threshold < 1){
+			throw new IllegalArgumentException("ternary threshold " + threshold + " must be at least 1");
+		}
+		QuantizedWeights quantized = new QuantizedWeights(weights.dimension, TERNARY, threshold);
+		quantized.numPatterns = weights.numPatterns;
+		for(int i = 0; i < weights.dimension; i++){
+			for(int j = 0; j < weights.dimension; j++){
+				int value = weights.get(i, j);
+				if(value >= threshold){
+					quantized.plus[i * quantized.words + (j >>> 6)] |= 1L << j;
+				}else if(value <= -threshold){
+					quantized.minus[i * quantized.words + (j >>> 6)] |= 1L << j;
+				}
+			}
+		}
+		quantized.countRows();
+		return quantized;
+	}
+
+	/*
+	Description: reduces every weight to its sign, a 0 weight (and the diagonal) becomes +1
+	PARAMS: weights: WeightMatrix (the trained weights)
+	RETURN: QuantizedWeights - the binary weights
+	*/
+	public static QuantizedWeights binary(WeightMatrix weights) {
+		QuantizedWeights quantized = new QuantizedWeights(weights.dimension, BINARY, 0);
+		quantized.numPatterns = weights.numPatterns;
+		for(int i = 0; i < weights.dimension; i++){
+			for(int j = 0; j < weights.dimension; j++){
+				if(weights.get(i, j) >= 0){
+					quantized.plus[i * quantized.words + (j >>> 6)] |= 1L << j;
+				}
+			}
+		}
+		quantized.countRows();
+		return quantized;
+	}
+
+	/*
+	Description: fills in the constant part of every row's field from its bitsets
+	PARAMS: None
+	RETURN: None
+	*/
+	private void countRows() {
+		for(int i = 0; i < dimension; i++){
+			if(mode == TERNARY){
+				int count = 0;
+				for(int w = i * words; w < (i + 1) * words; w++){
+					count += Long.bitCount(minus[w]) - Long.bitCount(plus[w]);
+				}
+				bias[i] = count;
+			}else{
+				bias[i] = dimension;
+			}
+		}
+	}
+
+	/*
+	Description: returns one bit of a row
+	PARAMS: rows: long[]
+			i: int (row)
+			j: int (column)
+	RETURN: boolean
+	*/
+	private boolean bit(long[] rows, int i, int j) {
+		return (rows[i * words + (j >>> 6)] & (1L << j)) != 0;
+	}
+
+	/*
+	Description: returns a quantized weight
+	PARAMS: i: int
+			j: int
+	RETURN: int - -1, 0 or +1
+	*/
+	public int get(int i, int j) {
+		if(mode == BINARY){
+			return i == j ? 0 : bit(plus, i, j) ? 1 : -1;
+		}
+		return bit(plus, i, j) ? 1 : bit(minus, i, j) ? -1 : 0;
+	}
+
+	/*
+	Description: checks whether an argument names a quantization, so main can tell a mode from a testing set by the command
+				 line alone
+	PARAMS: setting: String
+	RETURN: boolean - true for int8, clip-<limit>, ternary-<threshold> and binary
+	*/
+	static boolean isSetting(String setting) {
+		return setting.equals("int8") || setting.equals("binary") || setting.matches("(clip|ternary)-\\d+");
+	}
+
+	/*
+	Description: builds the weights for one mode ("int8", "clip-<n>", "ternary-<t>" or "binary")
+	PARAMS: weights: WeightMatrix (the trained weights)
+			setting: String
+	RETURN: RecallKernel - a clipped WeightMatrix or QuantizedWeights
+	*/
+	static RecallKernel quantize(WeightMatrix weights, String setting) {
+		if(setting.equals("int8")){
+			return weights.clip(Byte.MAX_VALUE);
+		}else if(setting.startsWith("clip-")){
+			return weights.clip(Integer.parseInt(setting.substring(5)));
+		}else if(setting.startsWith("ternary-")){
+			return ternary(weights, Integer.parseInt(setting.substring(8)));
+		}else if(setting.equals("binary")){
+			return binary(weights);
+		}
+		throw new IllegalArgumentException("quantization " + setting + " is not int8, clip-<limit>, ternary-<threshold> or binary");
+	}
+
+	public int dimension() {
+		return dimension;
+	}
+
+	/*
+	Description: the recall state is the image as a bitset, long word w held in ints 2w (low half) and 2w+1 (high half)
+	*/
+	public int[] newState() {
+		return new int[words * 2];
+	}
+
+	public void initialize(int[] yArr, int[] state) {
+		Arrays.fill(state, 0);
+		for(int j = 0; j < dimension; j++){
+			if(yArr[j] == 1){
+				state[j >>> 5] |= 1 << j;
+			}
+		}
+	}
+
+	public int field(int neuron, int[] yArr, int[] state) {
+		int row = neuron * words;
+		if(mode == BINARY){
+			int differ = 0;
+			for(int w = 0; w < words; w++){
+				differ += Long.bitCount(plus[row + w] ^ word(state, w));
+			}
+			//the diagonal term of the row is +-1 * yArr[neuron] and is taken back out
+			return bias[neuron] - 2 * differ - (bit(plus, neuron, neuron) ? yArr[neuron] : -yArr[neuron]);
+		}
+		int count = 0;
+		for(int w = 0; w < words; w++){
+			long s = word(state, w);
+			count += Long.bitCount(plus[row + w] & s) - Long.bitCount(minus[row + w] & s);
+		}
+		return 2 * count + bias[neuron];
+	}
+
+	/*
+	Description: joins the two ints of a state word
+	PARAMS: state: int[]
+			w: int (word)
+	RETURN: long
+	*/
+	private static long word(int[] state, int w) {
+		return (state[2 * w] & 0xFFFFFFFFL) | ((long) state[2 * w + 1] << 32);
+	}
+
+	public void flipped(int neuron, int delta, int[] state) {
+		state[neuron >>> 5] ^= 1 << neuron;
+	}
+
+	/*
+	Description: row bitsets and row constants
+	*/
+	public long bytes() {
+		return 8L * plus.length + (minus == null ? 0 : 8L * minus.length) + 4L * bias.length;
+	}
+
+	/*
+	Description: checks whether a file starts with the quantized weights magic number
+	PARAMS: file: String
+	RETURN: boolean - true when the file is in the quantized format
+	*/
+	static boolean isQuantized(String file) throws IOException {
+		try(DataInputStream in = new DataInputStream(new FileInputStream(file))){
+			return in.available() >= 4 && in.readInt() == MAGIC;
+		}
+	}
+
+	/*
+	Description: writes the quantized weights in the .qnt format
+	PARAMS: writeFile: String (filename for the weights)
+	RETURN: None
+	*/
+	public void writeToFile(String writeFile) throws IOException {
+		CRC32 crc = new CRC32();
+		try(DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(writeFile), 1 << 16), crc))){
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(dimension);
+			out.writeLong(numPatterns);
+			out.writeInt(mode);
+			out.writeInt(threshold);
+			for(long word: plus){
+				out.writeLong(word);
+			}
+			if(minus != null){
+				for(long word: minus){
+					out.writeLong(word);
+				}
+			}
+			out.flush();
+			out.writeLong(crc.getValue());
+		}
+	}
+
+	/*
+	Description: reads weights written by writeToFile
+	PARAMS: readFile: String (filename storing the quantized weights)
+	RETURN: QuantizedWeights - the loaded weights
+	*/
+	public static QuantizedWeights readFromFile(String readFile) throws IOException {
+		CRC32 crc = new CRC32();
+		try(DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(new FileInputStream(readFile), 1 << 16), crc))){
+			if(in.readInt() != MAGIC){
+				throw new IOException(readFile + " is not a quantized weights file");
+			}
+			int version = in.readInt();
+			if(version != VERSION){
+				throw new IOException(readFile + " has unsupported quantized weights format version " + version);
+			}
+			int dimension = in.readInt();
+			long numPatterns = in.readLong();
+			int mode = in.readInt();
+			if(mode != TERNARY && mode != BINARY){
+				throw new IOException(readFile + " has unsupported quantization mode " + mode);
+			}
+			QuantizedWeights quantized = new QuantizedWeights(dimension, mode, in.readInt());
+			quantized.numPatterns = numPatterns;
+			for(int w = 0; w < quantized.plus.length; w++){
+				quantized.plus[w] = in.readLong();
+			}
+			if(quantized.minus != null){
+				for(int w = 0; w < quantized.minus.length; w++){
+					quantized.minus[w] = in.readLong();
+				}
+			}
+			long expected = crc.getValue();
+			if(in.readLong() != expected){
+				throw new IOException(readFile + " failed its checksum, the weights are corrupt");
+			}
+			quantized.countRows();
+			return quantized;
+		}
+	}
+
+	/*
+	Description: quantizes a weights file and either writes the result (args: weights, mode, output file, .qnt for ternary
+				 and binary, a weights file name for int8/clip) or reports, for each mode, the memory and recall of every
+				 image of a testing set compared to the full precision weights. A second argument that is a mode (see
+				 isSetting) writes, anything else is a testing set
+	PARAMS: args: String[] (weights file, then a mode and an output file or a testing set and the modes to report on)
+	RETURN: None
+	*/
+	public static void main(String[] args) {
+		if(args.length < 3){
+			System.out.println("Usage: java QuantizedWeights <weights> <testing set> <int8|clip-<limit>|ternary-<threshold>|binary>...");
+			System.out.println("       java QuantizedWeights <weights> <mode> <output file>");
+			return;
+		}
+		try{
+			WeightMatrix weights = WeightMatrix.readFromFile(args[0]);
+			if(isSetting(args[1])){
+				write(quantize(weights, args[1]), args[2]);
+				System.out.println("Wrote " + args[2]);
+				return;
+			}
+
+			KernelReport report = new KernelReport(weights, args[1]);
+			System.out.println("setting,bits_per_weight," + KernelReport.COLUMNS);
+			for(int s = 2; s < args.length; s++){
+				RecallKernel kernel = quantize(weights, args[s]);
+				int bits = kernel instanceof QuantizedWeights ? ((QuantizedWeights) kernel).mode : ((WeightMatrix) kernel).width * 8;
+				System.out.printf("%s,%d,%s%n", args[s], bits, report.compare(kernel));
+			}
+		}catch(Exception e){
+			System.out.println("ERROR: " + e);
+		}
+	}
+
+	/*
+	Description: writes the weights of any mode, QuantizedWeights in .qnt and clipped matrices in the WeightMatrix formats
+	PARAMS: kernel: RecallKernel (from quantize)
+			writeFile: String
+	RETURN: None
+	*/
+	static void write(RecallKernel kernel, String writeFile) throws IOException {
+		if(kernel instanceof QuantizedWeights){
+			((QuantizedWeights) kernel).writeToFile(writeFile);
+		}else{
+			((WeightMatrix) kernel).writeToFile(writeFile);
+		}
+	}
+}
@@ -0,0 +1,135 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: RecallContext holds every scratch buffer recall needs (the kernel state, the update order, the packed image for
+			 PatternIndex lookups and the states seen while watching for a limit cycle) so the same context can recall image
+			 after image without allocating. A context belongs to one thread at a time and to the network it was made for.
+			 After each recall it also holds how the recall ended.
+*/
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+public class RecallContext {
+	final RecallKernel kernel;
+	final int[] state, order, values;
+	final long[] packed;
+	RandomGenerator random;
+	long[] seen = new long[16]; // open addressing set of state hashes, 0 marks an empty slot
+	boolean seenZero; // the hash 0 cannot be stored in seen
+	int seenCount;
+
+	//How the last recall ended
+	int sweeps, outcome, pattern;
+
+	/*
+	Description: constructor for a context of a network
+	PARAMS: network: HopfieldNetwork (the network it will recall with)
+			seed: long (seed of the update orders of this context's recalls)
+	RETURN: None
+	*/
+	public RecallContext(HopfieldNetwork network, long seed) {
+		this(network.kernel, new SplittableRandom(seed));
+	}
+
+	/*
+	Description: constructor for a context of a kernel, used by HopfieldTesting
+	PARAMS: kernel: RecallKernel
+			random: RandomGenerator (source of the update orders when recall is not given one)
+	RETURN: None
+	*/
+	RecallContext(RecallKernel kernel, RandomGenerator random) {
+		this.kernel = kernel;
+		this.random = random;
+		state = kernel.newState();
+		order = new int[kernel.dimension()];
+		values = new int[kernel.dimension()];
+		packed = new long[(kernel.dimension() + 63) >>> 6];
+	}
+
+	/*
+	Description: returns the number of sweeps the last recall ran
+	PARAMS: None
+	RETURN: int
+	*/
+	public int sweeps() {
+		return sweeps;
+	}
+
+	/*
+	Description: returns how the last recall ended
+	PARAMS: None
+	RETURN: int - RecallStats.CONVERGED, CYCLE or EPOCH_LIMIT
+	*/
+	public int outcome() {
+		return outcome;
+	}
+
+	/*
+	Description: returns the stored pattern the last result equals
+	PARAMS: None
+	RETURN: int - the pattern id, -1 when the result is not a stored pattern or the network has no PatternIndex
+	*/
+	public int pattern() {
+		return pattern;
+	}
+
+	/*
+	Description: forgets the states seen by the last recall
+	PARAMS: None
+	RETURN: None
+	*/
+	void clearSeen() {
+		if(seenCount > 0){
+			Arrays.fill(seen, 0);
+			seenCount = 0;
+		}
+		seenZero = false;
+	}
+
+	/*
+	Description: adds a state hash to the states seen, the table only grows while a context meets longer cycles than before
+	PARAMS: hash: long
+	RETURN: boolean - false when the hash was already seen
+	*/
+	boolean addSeen(long hash) {
+		if(hash == 0){
+			boolean added = !seenZero;
+			seenZero = true;
+			return added;
+		}
+		if((seenCount + 1) * 2 > seen.length){
+			long[] old = seen;
+			seen = new long[old.length * 2];
+			for(long h: old){
+				if(h != 0){
+					insert(h);
+				}
+			}
+		}
+		if(!insert(hash)){
+			return false;
+		}
+		seenCount++;
+		return true;
+	}
+
+	/*
+	Description: puts a hash in the first free slot of its probe sequence
+	PARAMS: hash: long (not 0)
+	RETURN: boolean - false when the hash is already there
+	*/
+	private boolean insert(long hash) {
+		int mask = seen.length - 1;
+		for(int slot = (int) (hash ^ (hash >>> 32)) & mask; ; slot = (slot + 1) & mask){
+			if(seen[slot] == 0){
+				seen[slot] = hash;
+				return true;
+			}
+			if(seen[slot] == hash){
+				return false;
+			}
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: RecallKernel is what HopfieldTesting needs from a trained network to recall an image: the local field of any
+			 neuron, kept current as neurons flip. Each image being recalled keeps its own state array (the local fields
+			 for a weight matrix) so one kernel can be shared read-only by every thread.
+*/
+
+public interface RecallKernel {
+
+	/*
+	Description: returns the number of neurons
+	PARAMS: None
+	RETURN: int
+	*/
+	int dimension();
+
+	/*
+	Description: allocates the per-image state used by the other methods
+	PARAMS: None
+	RETURN: int[] - state array for one image
+	*/
+	int[] newState();
+
+	/*
+	Description: sets up the state for an image
+	PARAMS: yArr: int[] (current neuron values)
+			state: int[] (state from newState, overwritten)
+	RETURN: None
+	*/
+	void initialize(int[] yArr, int[] state);
+
+	/*
+	Description: returns the local field of a neuron, the sum over j of w[neuron][j] * yArr[j]
+	PARAMS: neuron: int
+			yArr: int[] (current neuron values)
+			state: int[] (state of this image)
+	RETURN: int - the local field
+	*/
+	int field(int neuron, int[] yArr, int[] state);
+
+	/*
+	Description: updates the state after a neuron flips
+	PARAMS: neuron: int
+			delta: int (new value - old value)
+			state: int[] (state of this image)
+	RETURN: None
+	*/
+	void flipped(int neuron, int delta, int[] state);
+
+	/*
+	Description: returns the number of bytes used by the network
+	PARAMS: None
+	RETURN: long
+	*/
+	long bytes();
+}
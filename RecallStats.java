@@ -0,0 +1,84 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: RecallStats holds the telemetry of one image's recall: for every sweep (epoch) the number of neurons that
+			 flipped, the network energy after the sweep and the time it took, plus the time spent parsing the image and
+			 writing its result, how the recall ended and which stored pattern the result is (when the weights have a PatternIndex). The energy is E = -1/2 * sum of y_i * h_i over the neurons.
+*/
+
+import java.util.Arrays;
+
+public class RecallStats {
+	static final int CONVERGED = 0;
+	static final int CYCLE = 1;
+	static final int EPOCH_LIMIT = 2;
+
+	int image, outcome;
+	private int sweeps; // only counted by sweep, so every sweep has its flips, energy and time
+	int pattern = -1, nearest = -1, distance = -1; // stored pattern equal to the result, else the nearest one and its Hamming distance
+	boolean storedAttractor; // the probe was already a stored attractor so no sweeps ran (and no energy was computed)
+	int[] flipsPerSweep = new int[4];
+	long[] energyPerSweep = new long[4];
+	long[] nanosPerSweep = new long[4];
+	long startEnergy, parseNanos, recallNanos, writeNanos;
+
+	/*
+	Description: constructor for the stats of one image
+	PARAMS: image: int (image number)
+	RETURN: None
+	*/
+	public RecallStats(int image) {
+		this.image = image;
+	}
+
+	/*
+	Description: records one finished sweep
+	PARAMS: flips: int (neurons flipped during the sweep)
+			energy: long (energy after the sweep)
+			nanos: long (time the sweep took)
+	RETURN: None
+	*/
+	public void sweep(int flips, long energy, long nanos) {
+		if(sweeps == flipsPerSweep.length){
+			flipsPerSweep = Arrays.copyOf(flipsPerSweep, sweeps * 2);
+			energyPerSweep = Arrays.copyOf(energyPerSweep, sweeps * 2);
+			nanosPerSweep = Arrays.copyOf(nanosPerSweep, sweeps * 2);
+		}
+		flipsPerSweep[sweeps] = flips;
+		energyPerSweep[sweeps] = energy;
+		nanosPerSweep[sweeps] = nanos;
+		sweeps++;
+		recallNanos += nanos;
+	}
+
+	/*
+	Description: returns the number of sweeps recorded, sweep is the only method that counts them
+	PARAMS: None
+	RETURN: int
+	*/
+	public int sweeps() {
+		return sweeps;
+	}
+
+	/*
+	Description: returns the total number of flips over every recorded sweep
+	PARAMS: None
+	RETURN: long
+	*/
+	public long totalFlips() {
+		long total = 0;
+		for(int s = 0; s < sweeps; s++){
+			total += flipsPerSweep[s];
+		}
+		return total;
+	}
+
+	/*
+	Description: returns the energy the image finished with
+	PARAMS: None
+	RETURN: long
+	*/
+	public long finalEnergy() {
+		return sweeps == 0 ? startEnergy : energyPerSweep[sweeps - 1];
+	}
+}
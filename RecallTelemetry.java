@@ -0,0 +1,252 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: RecallTelemetry collects the RecallStats of every image of a test run. Next to the results file it writes
+			 <results>-images.csv (one row per image, with the per sweep flips, energies and times) and, when the run
+			 closes, <results>-summary.json (totals, means, the images that did not converge, the slowest images and log2 histograms of the time per sweep
+			 and per image). Every image and sweep is also emitted as a JFR event (hopfield.Recall / hopfield.Sweep) so a
+			 production run can be recorded with -XX:StartFlightRecording and inspected in JDK Mission Control.
+*/
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+public class RecallTelemetry {
+	static final int SLOWEST = 10;
+	static final int UNCONVERGED_LISTED = 100;
+	static final String[] OUTCOMES = {"converged", "cycle", "epoch_limit"};
+
+	String csvFile, summaryFile;
+	BufferedWriter csv;
+	long images, sweeps, flips, maxSweeps, parseNanos, recallNanos, writeNanos, cycles, epochLimits;
+	int unconverged, storedResults, spuriousResults, storedProbes;
+	List<Integer> unconvergedImages = new ArrayList<>();
+	long[] sweepNanosHistogram = new long[64];
+	long[] imageNanosHistogram = new long[64];
+	PriorityQueue<long[]> slowest = new PriorityQueue<>((a, b) -> Long.compare(a[1], b[1]));
+
+	@Name("hopfield.Recall")
+	@Label("Hopfield Image Recall")
+	@Category("Hopfield")
+	@Description("Recall of one test image")
+	static class RecallEvent extends Event {
+		@Label("Image")
+		int image;
+		@Label("Sweeps")
+		int sweeps;
+		@Label("Flips")
+		long flips;
+		@Label("Final Energy")
+		long energy;
+		@Label("Parse Time")
+		@Timespan
+		long parseNanos;
+		@Label("Recall Time")
+		@Timespan
+		long recallNanos;
+		@Label("Write Time")
+		@Timespan
+		long writeNanos;
+	}
+
+	@Name("hopfield.Sweep")
+	@Label("Hopfield Sweep")
+	@Category("Hopfield")
+	@Description("One sweep over every neuron of a test image")
+	static class SweepEvent extends Event {
+		@Label("Image")
+		int image;
+		@Label("Sweep")
+		int sweep;
+		@Label("Flips")
+		int flips;
+		@Label("Energy")
+		long energy;
+		@Label("Sweep Time")
+		@Timespan
+		long nanos;
+	}
+
+	/*
+	Description: constructor which opens the per image CSV next to the results file
+	PARAMS: writeFile: String (filename of the test results)
+	RETURN: None
+	*/
+	public RecallTelemetry(String writeFile) throws IOException {
+		String base = writeFile.endsWith(".txt") || writeFile.endsWith(ResultsFile.EXTENSION) ? writeFile.substring(0, writeFile.length() - 4) : writeFile;
+		csvFile = base + "-images.csv";
+		summaryFile = base + "-summary.json";
+		csv = new BufferedWriter(new FileWriter(csvFile));
+		csv.write("image,outcome,stored_pattern,hamming,sweeps,flips,final_energy,parse_ns,recall_ns,write_ns,flips_per_sweep,energy_per_sweep,ns_per_sweep\n");
+	}
+
+	/*
+	Description: adds one image to the totals, the CSV and the JFR recording. Called in image order from one thread
+	PARAMS: stats: RecallStats
+	RETURN: None
+	*/
+	public void record(RecallStats stats) throws IOException {
+		images++;
+		sweeps += stats.sweeps();
+		flips += stats.totalFlips();
+		maxSweeps = Math.max(maxSweeps, stats.sweeps());
+		parseNanos += stats.parseNanos;
+		recallNanos += stats.recallNanos;
+		writeNanos += stats.writeNanos;
+		imageNanosHistogram[bucket(stats.recallNanos)]++;
+		for(int s = 0; s < stats.sweeps(); s++){
+			sweepNanosHistogram[bucket(stats.nanosPerSweep[s])]++;
+		}
+		if(stats.outcome != RecallStats.CONVERGED){
+			unconverged++;
+			if(stats.outcome == RecallStats.CYCLE){
+				cycles++;
+			}else{
+				epochLimits++;
+			}
+			if(unconvergedImages.size() < UNCONVERGED_LISTED){
+				unconvergedImages.add(stats.image);
+			}
+		}
+		if(stats.pattern >= 0){
+			storedResults++;
+		}else if(stats.distance >= 0){
+			spuriousResults++;
+		}
+		if(stats.storedAttractor){
+			storedProbes++;
+		}
+		slowest.add(new long[]{stats.image, stats.recallNanos});
+		if(slowest.size() > SLOWEST){
+			slowest.poll();
+		}
+
+		StringBuilder row = new StringBuilder();
+		row.append(stats.image).append(',').append(OUTCOMES[stats.outcome]).append(',')
+			.append(stats.pattern >= 0 ? String.valueOf(stats.pattern) : stats.distance >= 0 ? "spurious" : "").append(',')
+			.append(stats.distance >= 0 ? String.valueOf(stats.distance) : "").append(',').append(stats.sweeps()).append(',').append(stats.totalFlips()).append(',')
+			.append(stats.finalEnergy()).append(',').append(stats.parseNanos).append(',').append(stats.recallNanos).append(',')
+			.append(stats.writeNanos).append(',');
+		for(int s = 0; s < stats.sweeps(); s++){
+			row.append(s == 0 ? "" : ";").append(stats.flipsPerSweep[s]);
+		}
+		row.append(',');
+		for(int s = 0; s < stats.sweeps(); s++){
+			row.append(s == 0 ? "" : ";").append(stats.energyPerSweep[s]);
+		}
+		row.append(',');
+		for(int s = 0; s < stats.sweeps(); s++){
+			row.append(s == 0 ? "" : ";").append(stats.nanosPerSweep[s]);
+		}
+		csv.write(row.append('\n').toString());
+
+		emitEvents(stats);
+	}
+
+	/*
+	Description: commits the JFR events of one image, a no-op unless a recording has the events enabled
+	PARAMS: stats: RecallStats
+	RETURN: None
+	*/
+	private void emitEvents(RecallStats stats) {
+		RecallEvent event = new RecallEvent();
+		if(event.shouldCommit()){
+			event.image = stats.image;
+			event.sweeps = stats.sweeps();
+			event.flips = stats.totalFlips();
+			event.energy = stats.finalEnergy();
+			event.parseNanos = stats.parseNanos;
+			event.recallNanos = stats.recallNanos;
+			event.writeNanos = stats.writeNanos;
+			event.commit();
+		}
+		for(int s = 0; s < stats.sweeps(); s++){
+			SweepEvent sweep = new SweepEvent();
+			if(!sweep.shouldCommit()){
+				break;
+			}
+			sweep.image = stats.image;
+			sweep.sweep = s + 1;
+			sweep.flips = stats.flipsPerSweep[s];
+			sweep.energy = stats.energyPerSweep[s];
+			sweep.nanos = stats.nanosPerSweep[s];
+			sweep.commit();
+		}
+	}
+
+	/*
+	Description: closes the CSV and writes the JSON summary of the run
+	PARAMS: None
+	RETURN: None
+	*/
+	public void close() throws IOException {
+		csv.close();
+
+		long[][] slow = slowest.toArray(new long[0][]);
+		Arrays.sort(slow, (a, b) -> Long.compare(b[1], a[1]));
+
+		try(BufferedWriter json = new BufferedWriter(new FileWriter(summaryFile))){
+			json.write("{\n");
+			json.write("  \"images\": " + images + ",\n");
+			json.write("  \"sweeps\": " + sweeps + ",\n");
+			json.write("  \"flips\": " + flips + ",\n");
+			json.write("  \"mean_sweeps\": " + (images == 0 ? 0 : (double) sweeps / images) + ",\n");
+			json.write("  \"max_sweeps\": " + maxSweeps + ",\n");
+			json.write("  \"mean_flips_per_sweep\": " + (sweeps == 0 ? 0 : (double) flips / sweeps) + ",\n");
+			json.write("  \"parse_ns\": " + parseNanos + ",\n");
+			json.write("  \"recall_ns\": " + recallNanos + ",\n");
+			json.write("  \"write_ns\": " + writeNanos + ",\n");
+			json.write("  \"stored_pattern_results\": " + storedResults + ",\n");
+			json.write("  \"spurious_results\": " + spuriousResults + ",\n");
+			json.write("  \"stored_attractor_probes\": " + storedProbes + ",\n");
+			json.write("  \"unconverged\": " + unconverged + ",\n");
+			json.write("  \"limit_cycles\": " + cycles + ",\n");
+			json.write("  \"epoch_limits\": " + epochLimits + ",\n");
+			json.write("  \"unconverged_images\": " + unconvergedImages + ",\n");
+			json.write("  \"slowest_images\": [");
+			for(int k = 0; k < slow.length; k++){
+				json.write((k == 0 ? "" : ", ") + "{\"image\": " + slow[k][0] + ", \"recall_ns\": " + slow[k][1] + "}");
+			}
+			json.write("],\n");
+			json.write("  \"sweep_ns_log2_histogram\": " + histogram(sweepNanosHistogram) + ",\n");
+			json.write("  \"image_ns_log2_histogram\": " + histogram(imageNanosHistogram) + "\n");
+			json.write("}\n");
+		}
+	}
+
+	/*
+	Description: log2 bucket of a duration, bucket b holds durations in [2^b, 2^(b+1)) ns
+	PARAMS: nanos: long
+	RETURN: int
+	*/
+	static int bucket(long nanos) {
+		return nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+	}
+
+	/*
+	Description: formats the non empty buckets of a histogram as a JSON object keyed by the bucket's lower bound in ns
+	PARAMS: counts: long[]
+	RETURN: String
+	*/
+	static String histogram(long[] counts) {
+		StringBuilder out = new StringBuilder("{");
+		for(int b = 0; b < counts.length; b++){
+			if(counts[b] != 0){
+				out.append(out.length() == 1 ? "" : ", ").append('"').append(1L << b).append("\": ").append(counts[b]);
+			}
+		}
+		return out.append('}').toString();
+	}
+}
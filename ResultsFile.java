@@ -0,0 +1,206 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: ResultsFile writes test results in a compact binary form instead of ASCII art, for runs with too many images to
+			 format as text. HopfieldTesting uses it when the results filename ends in .res. Layout (little endian): a 16 byte
+			 header of magic "HOPR", version, dimension and columns per row, then one fixed size record per image: image number,
+			 epochs, outcome (RecallStats.CONVERGED/CYCLE/EPOCH_LIMIT), the stored pattern it equals or is nearest to and the
+			 Hamming distance to it (both -1 without a PatternIndex), then the image bit-packed into longs (bit i set when
+			 neuron i is 1).
+
+To convert a binary results file to the ASCII results format:
+	java ResultsFile testResults/results.res testResults/results.txt
+*/
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class ResultsFile implements Closeable {
+	static final String EXTENSION = ".res"; // not .bin, which names binary weights files
+	static final int MAGIC = 0x52504F48; // "HOPR" read little endian
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 16;
+	static final int BUFFER_BYTES = 1 << 16;
+
+	FileChannel channel;
+	ByteBuffer buffer;
+	int dimension, words, recordBytes;
+	boolean headerWritten;
+
+	/*
+	Description: constructor which creates the file, the header is written with the first image once its row length is known
+	PARAMS: writeFile: String (filename for the results)
+			dimension: int (neurons per image)
+	RETURN: None
+	*/
+	public ResultsFile(String writeFile, int dimension) throws IOException {
+		this.dimension = dimension;
+		words = (dimension + 63) >>> 6;
+		recordBytes = recordBytes(words);
+		buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_BYTES, recordBytes)).order(ByteOrder.LITTLE_ENDIAN);
+		channel = FileChannel.open(Path.of(writeFile), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	/*
+	Description: writes the header once
+	PARAMS: numCols: int (values per row of an image, used when converting back to ASCII)
+	RETURN: None
+	*/
+	private void writeHeader(int numCols) {
+		if(!headerWritten){
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(dimension).putInt(numCols);
+			headerWritten = true;
+		}
+	}
+
+	/*
+	Description: returns the size of one image record
+	PARAMS: words: int (longs per image)
+	RETURN: int
+	*/
+	static int recordBytes(int words) {
+		return 4 * 4 + 1 + 8 * words;
+	}
+
+	/*
+	Description: appends the result of one image
+	PARAMS: yArr: int[] (recalled image)
+			numCols: int (values per row of the image)
+			stats: RecallStats (image number, epochs, outcome and stored pattern label)
+	RETURN: None
+	*/
+	public void write(int[] yArr, int numCols, RecallStats stats) throws IOException {
+		writeHeader(numCols);
+		if(buffer.remaining() < recordBytes){
+			drain();
+		}
+		int pattern = stats.pattern >= 0 ? stats.pattern : stats.nearest;
+		buffer.putInt(stats.image).putInt(stats.sweeps()).put((byte) stats.outcome).putInt(pattern).putInt(stats.distance);
+		for(int w = 0; w < words; w++){
+			long word = 0;
+			int end = Math.min(dimension, (w + 1) << 6);
+			for(int i = w << 6; i < end; i++){
+				if(yArr[i] == 1){
+					word |= 1L << i;
+				}
+			}
+			buffer.putLong(word);
+		}
+	}
+
+	/*
+	Description: writes the buffered records to the file
+	PARAMS: None
+	RETURN: None
+	*/
+	private void drain() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/*
+	Description: writes what is left and closes the file
+	PARAMS: None
+	RETURN: None
+	*/
+	@Override
+	public void close() throws IOException {
+		try{
+			writeHeader(0);
+			drain();
+		}finally{
+			channel.close();
+		}
+	}
+
+	/*
+	Description: converts a binary results file to the ASCII results format written by HopfieldTesting
+	PARAMS: args: String[] (binary results file, ASCII output file)
+	RETURN: None
+	*/
+	public static void main(String[] args) {
+		if(args.length < 2){
+			System.out.println("Usage: java ResultsFile <results" + EXTENSION + "> <results.txt>");
+			return;
+		}
+		try(FileChannel channel = FileChannel.open(Path.of(args[0]), StandardOpenOption.READ);
+			BufferedWriter writer = new BufferedWriter(new FileWriter(args[1]))){
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, header);
+			if(header.getInt() != MAGIC){
+				throw new IOException(args[0] + " is not a binary results file");
+			}
+			int version = header.getInt();
+			if(version != VERSION){
+				throw new IOException(args[0] + " has unsupported results format version " + version);
+			}
+			int dimension = header.getInt();
+			int numCols = header.getInt();
+			int words = (dimension + 63) >>> 6;
+			ByteBuffer record = ByteBuffer.allocate(recordBytes(words)).order(ByteOrder.LITTLE_ENDIAN);
+			long records = (channel.size() - HEADER_BYTES) / record.capacity();
+			String[] outcomes = {"", "limit cycle", "epoch limit"};
+			StringBuilder out = new StringBuilder();
+			for(long r = 0; r < records; r++){
+				readFully(channel, record);
+				int image = record.getInt();
+				int epochs = record.getInt();
+				int outcome = record.get();
+				int pattern = record.getInt();
+				int distance = record.getInt();
+				out.setLength(0);
+				if(outcome == RecallStats.CONVERGED){
+					out.append("Image ").append(image).append(" : Took ").append(epochs).append(" Epochs To Converge");
+					if(distance == 0){
+						out.append(" : Pattern ").append(pattern);
+					}else if(distance > 0){
+						out.append(" : Spurious, Hamming Distance ").append(distance).append(" To Pattern ").append(pattern);
+					}
+				}else{
+					out.append("Image ").append(image).append(" : Did Not Converge After ").append(epochs).append(" Epochs (").append(outcomes[outcome]).append(')');
+				}
+				out.append('\n');
+				long word = 0;
+				for(int i = 0; i < dimension; i++){
+					if((i & 63) == 0){
+						word = record.getLong();
+					}
+					out.append((word & (1L << i)) != 0 ? 'O' : ' ');
+					if(numCols > 0 && (i + 1) % numCols == 0){
+						out.append('\n');
+					}
+				}
+				out.append("\n\n");
+				writer.write(out.toString());
+			}
+		}catch(Exception e){
+			System.out.println("ERROR: " + e);
+		}
+	}
+
+	/*
+	Description: fills a buffer from the channel and flips it for reading
+	PARAMS: channel: FileChannel
+			buffer: ByteBuffer
+	RETURN: None
+	*/
+	private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.clear();
+		while(buffer.hasRemaining()){
+			if(channel.read(buffer) < 0){
+				throw new IOException("results file ends in the middle of a record");
+			}
+		}
+		buffer.flip();
+	}
+}
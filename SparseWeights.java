@@ -0,0 +1,513 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: SparseWeights is a pruned copy of a trained WeightMatrix kept in compressed sparse row (CSR) form. Like the
+			 packed WeightMatrix it stores only the upper triangle: row i holds the kept weights w_ij with j > i, each weight
+			 once, and every entry is applied in both directions. Weights are pruned either below a magnitude threshold or down
+			 to the k largest per neuron (a weight is kept when either of its neurons picks it, so the matrix stays symmetric
+			 and recall still lowers the energy with every flip). Columns are delta encoded in one byte per entry, the gap to
+			 the entry before it in the row (or to i for the first); a gap over 255 is bridged by filler entries of weight 0,
+			 which add nothing to any field. A kept weight therefore costs one byte of column plus its value, 2 bytes when the
+			 values fit in a byte, against 1 byte per weight of the dense triangle, so the store is smaller than the dense
+			 matrix only below about half the weights kept (the reports print the actual ratio).
+			 The recall state keeps, for each neuron, the field from the rows before it (pushed by each row's entries as its
+			 neuron flips), and the field from the neuron's own row is added when it is read, so both reads and flips cost
+			 one step per entry of a row. The file format (.csr) is: magic "HOPS", version, dimension, stored pattern count,
+			 element width, number of kept weights, number of entries (with fillers), the row offsets, the column gaps, the
+			 values and a CRC32 of everything before it.
+
+To prune a weights file and report recall accuracy against the dense weights for each setting (t<n> keeps weights of
+magnitude n or more, k<n> the n largest per neuron):
+	java --add-modules jdk.incubator.vector SparseWeights trainedWeights/weights100-5.txt testingSets/testingFile100-5-10.txt t3 t5 k10 k20
+	java SparseWeights <weights> k20 <output.csr> writes the pruned weights instead
+*/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+public class SparseWeights implements RecallKernel {
+	static final String EXTENSION = ".csr";
+	static final int MAGIC = 0x53504F48; // "HOPS"
+	static final int VERSION = 1;
+	static final int MAX_GAP = 255; // largest column gap of one entry, wider gaps take filler entries
+
+	int dimension, width, kept;
+	long numPatterns;
+	int[] rowStart; // entries of row i are rowStart[i] .. rowStart[i+1]-1
+	byte[] gaps; // column of an entry minus the column before it in the row (i before the first), 1 to 255 read unsigned
+	byte[] byteValues;
+	short[] shortValues;
+	int[] intValues;
+
+	//Where the next entry goes while the rows are being filled
+	private int next, column;
+
+	/*
+	Description: constructor which allocates the rows for a given number of entries (kept weights plus fillers)
+	PARAMS: dimension: int (number of neurons)
+			entries: int (number of entries)
+			maxMagnitude: long (largest absolute kept weight)
+	RETURN: None
+	*/
+	SparseWeights(int dimension, int entries, long maxMagnitude) {
+		this.dimension = dimension;
+		width = WeightMatrix.widthFor(maxMagnitude);
+		rowStart = new int[dimension + 1];
+		gaps = new byte[entries];
+		switch(width){
+			case WeightMatrix.BYTE: byteValues = new byte[entries]; break;
+			case WeightMatrix.SHORT: shortValues = new short[entries]; break;
+			default: intValues = new int[entries];
+		}
+	}
+
+	/*
+	Description: returns the entries a kept weight takes, one plus the fillers that bridge a wide gap
+	PARAMS: gap: int (its column minus the column of the entry before it)
+	RETURN: int
+	*/
+	static int entriesFor(int gap) {
+		return (gap + MAX_GAP - 1) / MAX_GAP;
+	}
+
+	/*
+	Description: starts filling row i, rows must be filled in order
+	PARAMS: i: int (neuron)
+	RETURN: None
+	*/
+	void startRow(int i) {
+		rowStart[i] = next;
+		column = i;
+	}
+
+	/*
+	Description: adds a kept weight to the row being filled, columns must ascend
+	PARAMS: j: int (column, after the row's neuron and the last column added)
+			value: int
+	RETURN: None
+	*/
+	void add(int j, int value) {
+		while(j - column > MAX_GAP){
+			put(MAX_GAP, 0);
+		}
+		put(j - column, value);
+		kept++;
+	}
+
+	/*
+	Description: ends the last row once every row is filled
+	PARAMS: None
+	RETURN: None
+	*/
+	void finish() {
+		rowStart[dimension] = next;
+	}
+
+	/*
+	Description: stores one entry
+	PARAMS: gap: int (1 to MAX_GAP)
+			value: int
+	RETURN: None
+	*/
+	private void put(int gap, int value) {
+		gaps[next] = (byte) gap;
+		switch(width){
+			case WeightMatrix.BYTE: byteValues[next] = (byte) value; break;
+			case WeightMatrix.SHORT: shortValues[next] = (short) value; break;
+			default: intValues[next] = value;
+		}
+		column += gap;
+		next++;
+	}
+
+	/*
+	Description: keeps the weights whose magnitude is at least threshold
+	PARAMS: weights: WeightMatrix (the trained weights)
+			threshold: int (smallest magnitude kept)
+	RETURN: SparseWeights - the pruned weights
+	*/
+	public static SparseWeights prune(WeightMatrix weights, int threshold) {
+		int n = weights.dimension;
+		long entries = 0;
+		long largest = 0;
+		for(int i = 0; i < n; i++){
+			int last = i;
+			for(int j = i + 1; j < n; j++){
+				int magnitude = Math.abs(weights.get(i, j));
+				if(magnitude >= threshold && magnitude > 0){
+					entries += entriesFor(j - last);
+					last = j;
+					largest = Math.max(largest, magnitude);
+				}
+			}
+		}
+		if(entries > Integer.MAX_VALUE - 8){
+			throw new IllegalArgumentException("threshold " + threshold + " keeps too many weights for sparse rows");
+		}
+
+		SparseWeights sparse = new SparseWeights(n, (int) entries, largest);
+		sparse.numPatterns = weights.numPatterns;
+		for(int i = 0; i < n; i++){
+			sparse.startRow(i);
+			for(int j = i + 1; j < n; j++){
+				int value = weights.get(i, j);
+				if(value != 0 && Math.abs(value) >= threshold){
+					sparse.add(j, value);
+				}
+			}
+		}
+		sparse.finish();
+		return sparse;
+	}
+
+	/*
+	Description: keeps the topK largest magnitude weights of every neuron. A weight picked by either of its neurons is kept,
+				 so a neuron can have more than topK weights. Ties are broken towards the lower column
+	PARAMS: weights: WeightMatrix (the trained weights)
+			topK: int (weights picked per neuron)
+	RETURN: SparseWeights - the pruned weights
+	*/
+	public static SparseWeights pruneTopK(WeightMatrix weights, int topK) {
+		int n = weights.dimension;
+		int picks = Math.max(0, Math.min(topK, n - 1));
+
+		//Each neuron's picks, then the upper triangle row i holds every column j > i that i picked or that picked i
+		int[][] rows = new int[n][];
+		int[] rowLength = new int[n];
+		long[] keys = new long[n - 1 > 0 ? n - 1 : 0];
+		int[] pickedBy = new int[n];
+		int[][] picked = new int[n][];
+		for(int i = 0; i < n; i++){
+			int count = 0;
+			for(int j = 0; j < n; j++){
+				if(j != i){
+					//Larger magnitude sorts first, then lower column
+					keys[count++] = ((long) (Integer.MAX_VALUE - Math.abs(weights.get(i, j))) << 32) | j;
+				}
+			}
+			Arrays.sort(keys);
+			int kept = 0;
+			int[] row = new int[picks];
+			for(int p = 0; p < picks; p++){
+				int j = (int) keys[p];
+				if(weights.get(i, j) != 0){
+					row[kept++] = j;
+				}
+			}
+			picked[i] = Arrays.copyOf(row, kept);
+			for(int j: picked[i]){
+				//a pick below the diagonal belongs to row j
+				pickedBy[j < i ? j : i]++;
+			}
+		}
+		for(int i = 0; i < n; i++){
+			rows[i] = new int[pickedBy[i]];
+		}
+		for(int i = 0; i < n; i++){
+			for(int j: picked[i]){
+				int row = Math.min(i, j);
+				rows[row][rowLength[row]++] = Math.max(i, j);
+			}
+			picked[i] = null;
+		}
+
+		//Sort each row and drop the weights picked from both ends
+		long entries = 0;
+		long largest = 0;
+		for(int i = 0; i < n; i++){
+			int[] row = rows[i];
+			Arrays.sort(row);
+			int length = 0;
+			int last = i;
+			for(int j: row){
+				if(length == 0 || row[length - 1] != j){
+					row[length++] = j;
+					entries += entriesFor(j - last);
+					last = j;
+					largest = Math.max(largest, Math.abs(weights.get(i, j)));
+				}
+			}
+			rowLength[i] = length;
+		}
+		if(entries > Integer.MAX_VALUE - 8){
+			throw new IllegalArgumentException("top " + topK + " keeps too many weights for sparse rows");
+		}
+
+		SparseWeights sparse = new SparseWeights(n, (int) entries, largest);
+		sparse.numPatterns = weights.numPatterns;
+		for(int i = 0; i < n; i++){
+			sparse.startRow(i);
+			for(int x = 0; x < rowLength[i]; x++){
+				sparse.add(rows[i][x], weights.get(i, rows[i][x]));
+			}
+		}
+		sparse.finish();
+		return sparse;
+	}
+
+	/*
+	Description: returns the number of kept weights, each counted once
+	PARAMS: None
+	RETURN: int
+	*/
+	public int entries() {
+		return kept;
+	}
+
+	/*
+	Description: returns the fraction of the off diagonal weights that were kept
+	PARAMS: None
+	RETURN: double
+	*/
+	public double density() {
+		return dimension < 2 ? 0 : 2.0 * kept / ((double) dimension * (dimension - 1));
+	}
+
+	/*
+	Description: adds scale times each weight of row i to the field of its column (the neurons after i)
+	PARAMS: i: int (neuron)
+			scale: int (change in the neuron's value)
+			fields: int[] (local fields to update)
+	RETURN: None
+	*/
+	public void addRow(int i, int scale, int[] fields) {
+		int end = rowStart[i + 1];
+		int j = i;
+		switch(width){
+			case WeightMatrix.BYTE:
+				for(int k = rowStart[i]; k < end; k++){
+					j += gaps[k] & 0xFF;
+					fields[j] += scale * byteValues[k];
+				}
+				break;
+			case WeightMatrix.SHORT:
+				for(int k = rowStart[i]; k < end; k++){
+					j += gaps[k] & 0xFF;
+					fields[j] += scale * shortValues[k];
+				}
+				break;
+			default:
+				for(int k = rowStart[i]; k < end; k++){
+					j += gaps[k] & 0xFF;
+					fields[j] += scale * intValues[k];
+				}
+		}
+	}
+
+	/*
+	Description: returns the dot product of row i with the neuron values, the field of i from the neurons after it
+	PARAMS: i: int (neuron)
+			yArr: int[] (current neuron values)
+	RETURN: int
+	*/
+	public int dot(int i, int[] yArr) {
+		int end = rowStart[i + 1];
+		int j = i;
+		int sum = 0;
+		switch(width){
+			case WeightMatrix.BYTE:
+				for(int k = rowStart[i]; k < end; k++){
+					j += gaps[k] & 0xFF;
+					sum += byteValues[k] * yArr[j];
+				}
+				break;
+			case WeightMatrix.SHORT:
+				for(int k = rowStart[i]; k < end; k++){
+					j += gaps[k] & 0xFF;
+					sum += shortValues[k] * yArr[j];
+				}
+				break;
+			default:
+				for(int k = rowStart[i]; k < end; k++){
+					j += gaps[k] & 0xFF;
+					sum += intValues[k] * yArr[j];
+				}
+		}
+		return sum;
+	}
+
+	public int dimension() {
+		return dimension;
+	}
+
+	/*
+	Description: the recall state of sparse weights is the field of every neuron from the neurons before it, the rows
+				 that hold its column
+	*/
+	public int[] newState() {
+		return new int[dimension];
+	}
+
+	public void initialize(int[] yArr, int[] state) {
+		Arrays.fill(state, 0, dimension, 0);
+		for(int i = 0; i < dimension; i++){
+			addRow(i, yArr[i], state);
+		}
+	}
+
+	public int field(int neuron, int[] yArr, int[] state) {
+		return state[neuron] + dot(neuron, yArr);
+	}
+
+	public void flipped(int neuron, int delta, int[] state) {
+		addRow(neuron, delta, state);
+	}
+
+	/*
+	Description: row offsets, column gaps and values
+	*/
+	public long bytes() {
+		return (long) rowStart.length * 4 + gaps.length + (long) gaps.length * width;
+	}
+
+	/*
+	Description: checks whether a file starts with the sparse weights magic number
+	PARAMS: file: String
+	RETURN: boolean - true when the file is in the sparse format
+	*/
+	static boolean isSparse(String file) throws IOException {
+		try(DataInputStream in = new DataInputStream(new FileInputStream(file))){
+			return in.available() >= 4 && in.readInt() == MAGIC;
+		}
+	}
+
+	/*
+	Description: writes the pruned weights in the .csr format
+	PARAMS: writeFile: String (filename for the weights)
+	RETURN: None
+	*/
+	public void writeToFile(String writeFile) throws IOException {
+		CRC32 crc = new CRC32();
+		try(DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(writeFile), 1 << 16), crc))){
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(dimension);
+			out.writeLong(numPatterns);
+			out.writeInt(width);
+			out.writeInt(kept);
+			out.writeInt(gaps.length);
+			for(int i = 0; i <= dimension; i++){
+				out.writeInt(rowStart[i]);
+			}
+			out.write(gaps);
+			for(int k = 0; k < gaps.length; k++){
+				switch(width){
+					case WeightMatrix.BYTE: out.writeByte(byteValues[k]); break;
+					case WeightMatrix.SHORT: out.writeShort(shortValues[k]); break;
+					default: out.writeInt(intValues[k]);
+				}
+			}
+			out.flush();
+			out.writeLong(crc.getValue());
+		}
+	}
+
+	/*
+	Description: reads weights written by writeToFile
+	PARAMS: readFile: String (filename storing the pruned weights)
+	RETURN: SparseWeights - the loaded weights
+	*/
+	public static SparseWeights readFromFile(String readFile) throws IOException {
+		CRC32 crc = new CRC32();
+		try(DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(new FileInputStream(readFile), 1 << 16), crc))){
+			if(in.readInt() != MAGIC){
+				throw new IOException(readFile + " is not a sparse weights file");
+			}
+			int version = in.readInt();
+			if(version != VERSION){
+				throw new IOException(readFile + " has unsupported sparse weights format version " + version);
+			}
+			int dimension = in.readInt();
+			long numPatterns = in.readLong();
+			int width = in.readInt();
+			int kept = in.readInt();
+			if(width != WeightMatrix.BYTE && width != WeightMatrix.SHORT && width != WeightMatrix.INT){
+				throw new IOException(readFile + " has unsupported element width " + width);
+			}
+			long maxMagnitude = width == WeightMatrix.BYTE ? Byte.MAX_VALUE : width == WeightMatrix.SHORT ? Short.MAX_VALUE : Integer.MAX_VALUE;
+			SparseWeights sparse = new SparseWeights(dimension, in.readInt(), maxMagnitude);
+			sparse.numPatterns = numPatterns;
+			sparse.kept = kept;
+			for(int i = 0; i <= dimension; i++){
+				sparse.rowStart[i] = in.readInt();
+			}
+			if(sparse.rowStart[dimension] != sparse.gaps.length){
+				throw new IOException(readFile + " has " + sparse.rowStart[dimension] + " row entries, expected " + sparse.gaps.length);
+			}
+			in.readFully(sparse.gaps);
+			for(int k = 0; k < sparse.gaps.length; k++){
+				switch(width){
+					case WeightMatrix.BYTE: sparse.byteValues[k] = in.readByte(); break;
+					case WeightMatrix.SHORT: sparse.shortValues[k] = in.readShort(); break;
+					default: sparse.intValues[k] = in.readInt();
+				}
+			}
+			long expected = crc.getValue();
+			if(in.readLong() != expected){
+				throw new IOException(readFile + " failed its checksum, the weights are corrupt");
+			}
+			return sparse;
+		}
+	}
+
+	/*
+	Description: prunes a weights file for one setting ("t<n>" threshold or "k<n>" top-k per neuron)
+	PARAMS: weights: WeightMatrix
+			setting: String
+	RETURN: SparseWeights - the pruned weights
+	*/
+	static SparseWeights prune(WeightMatrix weights, String setting) {
+		int value = Integer.parseInt(setting.substring(1));
+		if(setting.charAt(0) == 'k'){
+			return pruneTopK(weights, value);
+		}else if(setting.charAt(0) == 't'){
+			return prune(weights, value);
+		}
+		throw new IllegalArgumentException("pruning setting " + setting + " is not t<threshold> or k<top-k>");
+	}
+
+	/*
+	Description: prunes a weights file and either writes the result (args: weights, setting, output .csr) or reports, for
+				 each setting, the density, memory and recall of every image of a testing set compared to the dense weights.
+				 Both recalls of an image use the same update order so any difference comes from the pruning
+	PARAMS: args: String[] (weights file, then an output file or a testing set and the settings to report on)
+	RETURN: None
+	*/
+	public static void main(String[] args) {
+		if(args.length < 3){
+			System.out.println("Usage: java SparseWeights <weights> <testing set> <t<threshold>|k<top-k>>...");
+			System.out.println("       java SparseWeights <weights> <t<threshold>|k<top-k>> <output" + EXTENSION + ">");
+			return;
+		}
+		try{
+			WeightMatrix weights = WeightMatrix.readFromFile(args[0]);
+			if(args[2].endsWith(EXTENSION)){
+				SparseWeights sparse = prune(weights, args[1]);
+				sparse.writeToFile(args[2]);
+				System.out.printf("Wrote %s: density %.4f, %d bytes against %d dense (%.2fx the dense size)%n", args[2], sparse.density(),
+					sparse.bytes(), weights.bytes(), (double) sparse.bytes() / weights.bytes());
+				return;
+			}
+
+			//Dense recall of every image, the reference each setting is compared to
+			KernelReport report = new KernelReport(weights, args[1]);
+			System.out.println("setting,density,weights_per_neuron,bytes_per_weight," + KernelReport.COLUMNS);
+			for(int s = 2; s < args.length; s++){
+				SparseWeights sparse = prune(weights, args[s]);
+				System.out.printf("%s,%.4f,%.1f,%.2f,%s%n", args[s], sparse.density(), 2.0 * sparse.entries() / weights.dimension,
+					sparse.entries() == 0 ? 0 : (double) sparse.bytes() / sparse.entries(), report.compare(sparse));
+			}
+		}catch(Exception e){
+			System.out.println("ERROR: " + e);
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: StorkeyWeights trains weights with the Storkey learning rule, which stores noticeably more patterns per neuron
+			 than the plain Hebbian outer product. For each pattern x the rule is
+				w_ij += (x_i x_j - x_i h_ji - h_ij x_j) / N,  with h_ij = sum over k != i,j of w_ik x_k
+			 Every h_ij is the neuron's local field h_i minus the one term w_ij x_j, so the local fields are computed once per
+			 pattern and each pair update is O(1), making a pattern O(N^2) instead of O(N^3).
+			 Weights are kept as doubles in a packed upper triangle and scaled by N when rounded into a WeightMatrix, which
+			 puts them on the same scale as Hebbian weights.
+*/
+
+public class StorkeyWeights {
+	int dimension;
+	long numPatterns;
+	double[] weights;
+	double[] fields;
+
+	/*
+	Description: constructor which allocates an all zero network
+	PARAMS: dimension: int (number of neurons)
+	RETURN: None
+	*/
+	public StorkeyWeights(int dimension) {
+		long size = (long) dimension * (dimension - 1) / 2;
+		if(size > Integer.MAX_VALUE - 8){
+			throw new IllegalArgumentException("dimension " + dimension + " is too large for a packed weight matrix");
+		}
+		this.dimension = dimension;
+		weights = new double[(int) size];
+		fields = new double[dimension];
+	}
+
+	/*
+	Description: learns one bipolar pattern with the Storkey rule
+	PARAMS: inputArr: int[] (bipolar pattern)
+	RETURN: None
+	*/
+	public void addPattern(int[] inputArr) {
+		// local field of every neuron under the current weights, h_i = sum over k != i of w_ik x_k
+		for(int i = 0; i < dimension; i++){
+			fields[i] = 0;
+		}
+		int index = 0;
+		for(int i = 0; i < dimension - 1; i++){
+			double sum = 0;
+			for(int j = i + 1; j < dimension; j++){
+				double w = weights[index++];
+				sum += w * inputArr[j];
+				fields[j] += w * inputArr[i];
+			}
+			fields[i] += sum;
+		}
+
+		// every pair reads its old weight before writing, so the fields above stay valid for the whole pattern
+		double rate = 1.0 / dimension;
+		index = 0;
+		for(int i = 0; i < dimension - 1; i++){
+			int xi = inputArr[i];
+			for(int j = i + 1; j < dimension; j++){
+				int xj = inputArr[j];
+				double w = weights[index];
+				double hij = fields[i] - w * xj;
+				double hji = fields[j] - w * xi;
+				weights[index++] = w + rate * (xi * xj - xi * hji - hij * xj);
+			}
+		}
+		numPatterns++;
+	}
+
+	/*
+	Description: rounds the weights, scaled by N, into an integer WeightMatrix that can be written to a weights file
+	PARAMS: None
+	RETURN: WeightMatrix - the scaled weights
+	*/
+	public WeightMatrix toWeightMatrix() {
+		long largest = 0;
+		for(double w : weights){
+			largest = Math.max(largest, Math.abs(Math.round(w * dimension)));
+		}
+		WeightMatrix matrix = new WeightMatrix(dimension, largest);
+		matrix.numPatterns = numPatterns;
+		int index = 0;
+		for(int i = 0; i < dimension - 1; i++){
+			for(int j = i + 1; j < dimension; j++){
+				matrix.set(i, j, (int) Math.round(weights[index++] * dimension));
+			}
+		}
+		return matrix;
+	}
+}
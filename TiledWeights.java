@@ -0,0 +1,349 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: TiledWeights keeps the weight matrix on disk instead of the heap, for nets too large for a WeightMatrix. The matrix
+			 is cut into tileSize x tileSize tiles and only the tiles on or above the diagonal are stored (the matrix is
+			 symmetric). Band b holds tile rows b*tileSize .. (b+1)*tileSize - 1 and is one file, band-<b>.bin, of the tiles
+			 (b, b) .. (b, tiles-1) one after the other, each row major in the narrowest width that fits the pattern count.
+			 Every tile is memory mapped, so the operating system pages tiles in as they are used and the heap only holds
+			 the O(N) vectors. Training writes one band at a time, streaming the pattern file once per band and adding each
+			 pattern's outer product straight into the mapped tiles. Recall keeps the local fields on the heap, and a flip
+			 reads one row of tiles to the right of the neuron and one column of tiles above it. The directory also holds
+			 tiles.hdr (little endian): magic "HOPT", version, dimension, tile size, element width, stored pattern count.
+
+To train a tiled weights directory:
+	java TiledWeights trainingSets/trainingFile100-5.txt trainedWeights/tiled100-5 [tile size]
+*/
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class TiledWeights implements RecallKernel {
+	static final String HEADER_FILE = "tiles.hdr";
+	static final int MAGIC = 0x54504F48; // "HOPT" read little endian
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 32;
+	static final int DEFAULT_TILE_SIZE = 1024;
+
+	int dimension, tileSize, tiles, width;
+	long numPatterns;
+	ByteBuffer[][] tileBuffers; // [band][tile column - band]
+
+	/*
+	Description: constructor for the layout of a tiled matrix, the tiles are mapped by mapBand
+	PARAMS: dimension: int (number of neurons)
+			tileSize: int (rows and columns per tile)
+			width: int (bytes per weight)
+	RETURN: None
+	*/
+	TiledWeights(int dimension, int tileSize, int width) {
+		if(tileSize < 1 || (long) tileSize * tileSize * width > Integer.MAX_VALUE){
+			throw new IllegalArgumentException("tile size " + tileSize + " does not fit in one mapped tile");
+		}
+		this.dimension = dimension;
+		this.tileSize = tileSize;
+		this.width = width;
+		tiles = (dimension + tileSize - 1) / tileSize;
+		tileBuffers = new ByteBuffer[tiles][];
+	}
+
+	/*
+	Description: returns the bytes of one tile
+	PARAMS: None
+	RETURN: long
+	*/
+	long tileBytes() {
+		return (long) tileSize * tileSize * width;
+	}
+
+	/*
+	Description: returns the file of a band
+	PARAMS: directory: Path
+			band: int
+	RETURN: Path
+	*/
+	static Path bandFile(Path directory, int band) {
+		return directory.resolve("band-" + band + ".bin");
+	}
+
+	/*
+	Description: maps every tile of a band file
+	PARAMS: directory: Path
+			band: int
+			writable: boolean (true while training)
+	RETURN: None
+	*/
+	void mapBand(Path directory, int band, boolean writable) throws IOException {
+		int count = tiles - band;
+		tileBuffers[band] = new ByteBuffer[count];
+		StandardOpenOption[] options = writable
+			? new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING}
+			: new StandardOpenOption[]{StandardOpenOption.READ};
+		try(FileChannel channel = FileChannel.open(bandFile(directory, band), options)){
+			if(!writable && channel.size() != count * tileBytes()){
+				throw new IOException(bandFile(directory, band) + " is " + channel.size() + " bytes, expected " + count * tileBytes());
+			}
+			for(int t = 0; t < count; t++){
+				tileBuffers[band][t] = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, t * tileBytes(), tileBytes())
+					.order(ByteOrder.LITTLE_ENDIAN);
+			}
+		}
+	}
+
+	/*
+	Description: trains a tiled matrix from a pattern file with Hebbian learning, one band at a time
+	PARAMS: patternFile: String (training set)
+			directory: String (directory for the tiles, created if missing)
+			tileSize: int (rows and columns per tile)
+	RETURN: TiledWeights - the trained matrix, mapped read-only
+	*/
+	public static TiledWeights train(String patternFile, String directory, int tileSize) throws IOException {
+		int dimension, numImages;
+		try(PatternReader reader = new PatternReader(patternFile)){
+			dimension = reader.dimension;
+			numImages = reader.numImages;
+		}
+		Path dir = Path.of(directory);
+		Files.createDirectories(dir);
+		TiledWeights weights = new TiledWeights(dimension, tileSize, WeightMatrix.widthFor(numImages));
+		weights.numPatterns = numImages;
+
+		int[] inputArr = new int[dimension];
+		for(int band = 0; band < weights.tiles; band++){
+			weights.mapBand(dir, band, true);
+			try(PatternReader reader = new PatternReader(patternFile)){
+				for(int i = 0; i < numImages; i++){
+					if(!reader.next(inputArr)){
+						throw new IOException(patternFile + " ends after " + i + " of " + numImages + " images");
+					}
+					for(int t = band; t < weights.tiles; t++){
+						weights.addOuterProduct(band, t, inputArr);
+					}
+				}
+			}
+			for(ByteBuffer tile: weights.tileBuffers[band]){
+				((MappedByteBuffer) tile).force();
+			}
+			weights.tileBuffers[band] = null;
+		}
+		weights.writeHeader(dir);
+		return open(directory);
+	}
+
+	/*
+	Description: adds the part of a pattern's outer product that falls in one tile, only above the diagonal
+	PARAMS: band: int (tile row)
+			column: int (tile column, at least band)
+			inputArr: int[] (bipolar pattern)
+	RETURN: None
+	*/
+	void addOuterProduct(int band, int column, int[] inputArr) {
+		ByteBuffer tile = tileBuffers[band][column - band];
+		int rowBase = band * tileSize, colBase = column * tileSize;
+		int rows = Math.min(tileSize, dimension - rowBase), cols = Math.min(tileSize, dimension - colBase);
+		for(int r = 0; r < rows; r++){
+			int xi = inputArr[rowBase + r];
+			int offset = r * tileSize;
+			int start = (band == column) ? r + 1 : 0;
+			switch(width){
+				case WeightMatrix.BYTE:
+					for(int c = start; c < cols; c++){
+						tile.put(offset + c, (byte) (tile.get(offset + c) + xi * inputArr[colBase + c]));
+					}
+					break;
+				case WeightMatrix.SHORT:
+					for(int c = start; c < cols; c++){
+						int at = (offset + c) << 1;
+						tile.putShort(at, (short) (tile.getShort(at) + xi * inputArr[colBase + c]));
+					}
+					break;
+				default:
+					for(int c = start; c < cols; c++){
+						int at = (offset + c) << 2;
+						tile.putInt(at, tile.getInt(at) + xi * inputArr[colBase + c]);
+					}
+			}
+		}
+	}
+
+	/*
+	Description: writes tiles.hdr
+	PARAMS: dir: Path
+	RETURN: None
+	*/
+	void writeHeader(Path dir) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(dimension).putInt(tileSize).putInt(width).putLong(numPatterns);
+		Files.write(dir.resolve(HEADER_FILE), header.array());
+	}
+
+	/*
+	Description: checks whether a path is a tiled weights directory
+	PARAMS: path: String
+	RETURN: boolean
+	*/
+	static boolean isTiled(String path) {
+		return Files.isRegularFile(Path.of(path).resolve(HEADER_FILE));
+	}
+
+	/*
+	Description: opens a tiled weights directory, mapping every tile read-only
+	PARAMS: directory: String
+	RETURN: TiledWeights
+	*/
+	public static TiledWeights open(String directory) throws IOException {
+		Path dir = Path.of(directory);
+		ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(dir.resolve(HEADER_FILE))).order(ByteOrder.LITTLE_ENDIAN);
+		if(header.remaining() != HEADER_BYTES || header.getInt() != MAGIC){
+			throw new IOException(directory + " is not a tiled weights directory");
+		}
+		int version = header.getInt();
+		if(version != VERSION){
+			throw new IOException(directory + " has unsupported tiled weights version " + version);
+		}
+		int dimension = header.getInt();
+		int tileSize = header.getInt();
+		int width = header.getInt();
+		if(width != WeightMatrix.BYTE && width != WeightMatrix.SHORT && width != WeightMatrix.INT){
+			throw new IOException(directory + " has unsupported element width " + width);
+		}
+		TiledWeights weights = new TiledWeights(dimension, tileSize, width);
+		weights.numPatterns = header.getLong();
+		for(int band = 0; band < weights.tiles; band++){
+			weights.mapBand(dir, band, false);
+		}
+		return weights;
+	}
+
+	/*
+	Description: returns the weight at an element offset of a tile
+	PARAMS: tile: ByteBuffer
+			offset: int
+	RETURN: int
+	*/
+	private int valueAt(ByteBuffer tile, int offset) {
+		switch(width){
+			case WeightMatrix.BYTE: return tile.get(offset);
+			case WeightMatrix.SHORT: return tile.getShort(offset << 1);
+			default: return tile.getInt(offset << 2);
+		}
+	}
+
+	/*
+	Description: returns the weight between two neurons
+	PARAMS: i: int
+			j: int
+	RETURN: int - w[i][j], 0 on the diagonal
+	*/
+	public int get(int i, int j) {
+		if(i == j){
+			return 0;
+		}
+		if(i > j){
+			int swap = i;
+			i = j;
+			j = swap;
+		}
+		int band = i / tileSize, column = j / tileSize;
+		return valueAt(tileBuffers[band][column - band], (i - band * tileSize) * tileSize + (j - column * tileSize));
+	}
+
+	public int dimension() {
+		return dimension;
+	}
+
+	/*
+	Description: the recall state of tiled weights is the local field of every neuron
+	*/
+	public int[] newState() {
+		return new int[dimension];
+	}
+
+	/*
+	Description: walks every stored tile once, adding each weight to the fields of both of its neurons
+	*/
+	public void initialize(int[] yArr, int[] state) {
+		for(int i = 0; i < dimension; i++){
+			state[i] = 0;
+		}
+		for(int band = 0; band < tiles; band++){
+			int rowBase = band * tileSize;
+			int rows = Math.min(tileSize, dimension - rowBase);
+			for(int column = band; column < tiles; column++){
+				ByteBuffer tile = tileBuffers[band][column - band];
+				int colBase = column * tileSize;
+				int cols = Math.min(tileSize, dimension - colBase);
+				for(int r = 0; r < rows; r++){
+					int i = rowBase + r;
+					int offset = r * tileSize;
+					int sum = 0;
+					for(int c = (band == column) ? r + 1 : 0; c < cols; c++){
+						int w = valueAt(tile, offset + c);
+						sum += w * yArr[colBase + c];
+						state[colBase + c] += w * yArr[i];
+					}
+					state[i] += sum;
+				}
+			}
+		}
+	}
+
+	public int field(int neuron, int[] yArr, int[] state) {
+		return state[neuron];
+	}
+
+	/*
+	Description: row of the neuron in its band's tiles (columns after it) and its column in the tiles above (rows before it)
+	*/
+	public void flipped(int neuron, int delta, int[] state) {
+		int band = neuron / tileSize, r = neuron - band * tileSize;
+		for(int column = band; column < tiles; column++){
+			ByteBuffer tile = tileBuffers[band][column - band];
+			int colBase = column * tileSize;
+			int cols = Math.min(tileSize, dimension - colBase);
+			for(int c = (band == column) ? r + 1 : 0; c < cols; c++){
+				state[colBase + c] += delta * valueAt(tile, r * tileSize + c);
+			}
+		}
+		for(int above = 0; above <= band; above++){
+			ByteBuffer tile = tileBuffers[above][band - above];
+			int rowBase = above * tileSize;
+			int rows = (above == band) ? r : tileSize;
+			for(int row = 0; row < rows; row++){
+				state[rowBase + row] += delta * valueAt(tile, row * tileSize + r);
+			}
+		}
+	}
+
+	/*
+	Description: bytes of the mapped tiles, which live in the page cache rather than the heap
+	*/
+	public long bytes() {
+		return (long) tiles * (tiles + 1) / 2 * tileBytes();
+	}
+
+	/*
+	Description: trains a tiled weights directory from the command line
+	PARAMS: args: String[] (training set, output directory, optional tile size)
+	RETURN: None
+	*/
+	public static void main(String[] args) {
+		if(args.length < 2){
+			System.out.println("Usage: java TiledWeights <training set> <weights directory> [tile size]");
+			return;
+		}
+		try{
+			int tileSize = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_TILE_SIZE;
+			TiledWeights weights = train(args[0], args[1], tileSize);
+			System.out.println("Trained " + args[1] + " (" + weights.dimension + " neurons, " + weights.tiles + " x " + weights.tiles + " tiles of " + tileSize + ")");
+		}catch(Exception e){
+			System.out.println("ERROR: " + e);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: VectorFieldKernel computes the local field loops of FieldKernel with the JDK Vector API, eight lanes at a time.
+			 Byte and short weights are widened to int lanes before the multiply. Needs --add-modules jdk.incubator.vector
+			 to compile and to run, FieldKernel.select falls back to the scalar loops without it
+*/
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+public class VectorFieldKernel extends FieldKernel {
+	static final VectorSpecies<Integer> INTS = IntVector.SPECIES_256;
+	static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_128;
+	static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_64;
+
+	@Override
+	boolean isSupported() {
+		return IntVector.SPECIES_PREFERRED.vectorBitSize() >= INTS.vectorBitSize();
+	}
+
+	@Override
+	int dot(byte[] w, int wOff, int[] y, int yOff, int len) {
+		IntVector acc = IntVector.zero(INTS);
+		int bound = INTS.loopBound(len);
+		int k = 0;
+		for(; k < bound; k += INTS.length()){
+			IntVector wv = (IntVector) ByteVector.fromArray(BYTES, w, wOff + k).convertShape(VectorOperators.B2I, INTS, 0);
+			acc = acc.add(wv.mul(IntVector.fromArray(INTS, y, yOff + k)));
+		}
+		int sum = acc.reduceLanes(VectorOperators.ADD);
+		for(; k < len; k++){
+			sum += w[wOff + k] * y[yOff + k];
+		}
+		return sum;
+	}
+
+	@Override
+	int dot(short[] w, int wOff, int[] y, int yOff, int len) {
+		IntVector acc = IntVector.zero(INTS);
+		int bound = INTS.loopBound(len);
+		int k = 0;
+		for(; k < bound; k += INTS.length()){
+			IntVector wv = (IntVector) ShortVector.fromArray(SHORTS, w, wOff + k).convertShape(VectorOperators.S2I, INTS, 0);
+			acc = acc.add(wv.mul(IntVector.fromArray(INTS, y, yOff + k)));
+		}
+		int sum = acc.reduceLanes(VectorOperators.ADD);
+		for(; k < len; k++){
+			sum += w[wOff + k] * y[yOff + k];
+		}
+		return sum;
+	}
+
+	@Override
+	int dot(int[] w, int wOff, int[] y, int yOff, int len) {
+		IntVector acc = IntVector.zero(INTS);
+		int bound = INTS.loopBound(len);
+		int k = 0;
+		for(; k < bound; k += INTS.length()){
+			acc = acc.add(IntVector.fromArray(INTS, w, wOff + k).mul(IntVector.fromArray(INTS, y, yOff + k)));
+		}
+		int sum = acc.reduceLanes(VectorOperators.ADD);
+		for(; k < len; k++){
+			sum += w[wOff + k] * y[yOff + k];
+		}
+		return sum;
+	}
+
+	@Override
+	void axpy(byte[] w, int wOff, int scale, int[] fields, int fOff, int len) {
+		int bound = INTS.loopBound(len);
+		int k = 0;
+		for(; k < bound; k += INTS.length()){
+			IntVector wv = (IntVector) ByteVector.fromArray(BYTES, w, wOff + k).convertShape(VectorOperators.B2I, INTS, 0);
+			IntVector.fromArray(INTS, fields, fOff + k).add(wv.mul(scale)).intoArray(fields, fOff + k);
+		}
+		for(; k < len; k++){
+			fields[fOff + k] += scale * w[wOff + k];
+		}
+	}
+
+	@Override
+	void axpy(short[] w, int wOff, int scale, int[] fields, int fOff, int len) {
+		int bound = INTS.loopBound(len);
+		int k = 0;
+		for(; k < bound; k += INTS.length()){
+			IntVector wv = (IntVector) ShortVector.fromArray(SHORTS, w, wOff + k).convertShape(VectorOperators.S2I, INTS, 0);
+			IntVector.fromArray(INTS, fields, fOff + k).add(wv.mul(scale)).intoArray(fields, fOff + k);
+		}
+		for(; k < len; k++){
+			fields[fOff + k] += scale * w[wOff + k];
+		}
+	}
+
+	@Override
+	void axpy(int[] w, int wOff, int scale, int[] fields, int fOff, int len) {
+		int bound = INTS.loopBound(len);
+		int k = 0;
+		for(; k < bound; k += INTS.length()){
+			IntVector.fromArray(INTS, fields, fOff + k).add(IntVector.fromArray(INTS, w, wOff + k).mul(scale)).intoArray(fields, fOff + k);
+		}
+		for(; k < len; k++){
+			fields[fOff + k] += scale * w[wOff + k];
+		}
+	}
+}
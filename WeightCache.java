@@ -0,0 +1,181 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: WeightCache keeps trained weights loaded for the life of the process so testing the same weights file again skips
+			 reading and parsing it. Entries are keyed by the file's path and checked against its modification time and size,
+			 so a retrained or updated file is loaded fresh. The cache holds at most a memory budget of weights (the
+			 hopfield.cache.bytes system property, a quarter of the heap by default) and evicts the least recently used entries
+			 to stay under it. When several threads ask for a file that is not loaded yet, one loads it and the others wait for
+			 that load. Cached weights are shared, so they must only be read.
+*/
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+public class WeightCache {
+	static final WeightCache SHARED = new WeightCache(Long.getLong("hopfield.cache.bytes", Runtime.getRuntime().maxMemory() / 4));
+
+	long budget, cachedBytes;
+	long hits, misses;
+	LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // access order, eldest is least recently used
+
+	/*
+	Description: one cached file, the load is shared by every thread that asked for it while it ran
+	*/
+	static class Entry {
+		FileTime modified;
+		long size, bytes;
+		FutureTask<RecallKernel> load;
+
+		Entry(FileTime modified, long size, FutureTask<RecallKernel> load) {
+			this.modified = modified;
+			this.size = size;
+			this.load = load;
+		}
+	}
+
+	/*
+	Description: constructor for a cache holding at most budget bytes of weights
+	PARAMS: budget: long (memory budget in bytes)
+	RETURN: None
+	*/
+	public WeightCache(long budget) {
+		this.budget = budget;
+	}
+
+	/*
+	Description: returns the process-wide cache
+	PARAMS: None
+	RETURN: WeightCache
+	*/
+	public static WeightCache shared() {
+		return SHARED;
+	}
+
+	/*
+	Description: returns the weights of a file, from the cache when the file has not changed since it was loaded
+	PARAMS: weightsFile: String (dense or sparse weights file)
+	RETURN: RecallKernel - the weights, shared read-only
+	*/
+	public RecallKernel get(String weightsFile) throws IOException {
+		Path path = Path.of(weightsFile).toAbsolutePath().normalize();
+		//A tiled weights directory is stamped by its header, which training writes last
+		Path stamped = TiledWeights.isTiled(weightsFile) ? path.resolve(TiledWeights.HEADER_FILE) : path;
+		BasicFileAttributes attributes = Files.readAttributes(stamped, BasicFileAttributes.class);
+		FileTime modified = attributes.lastModifiedTime();
+		long size = attributes.size();
+
+		Entry entry;
+		boolean loader = false;
+		synchronized(this){
+			entry = entries.get(path);
+			if(entry != null && (!entry.modified.equals(modified) || entry.size != size)){
+				remove(path, entry);
+				entry = null;
+			}
+			if(entry == null){
+				entry = new Entry(modified, size, new FutureTask<>(() -> read(weightsFile)));
+				entries.put(path, entry);
+				loader = true;
+				misses++;
+			}else{
+				hits++;
+			}
+		}
+
+		if(loader){
+			entry.load.run();
+		}
+		RecallKernel kernel;
+		try{
+			kernel = entry.load.get();
+		}catch(ExecutionException e){
+			synchronized(this){
+				remove(path, entry);
+			}
+			if(e.getCause() instanceof IOException){
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("could not load " + weightsFile, e.getCause());
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted loading " + weightsFile, e);
+		}
+
+		if(loader){
+			synchronized(this){
+				if(entries.get(path) == entry){
+					entry.bytes = kernel.bytes();
+					cachedBytes += entry.bytes;
+					evict();
+				}
+			}
+		}
+		return kernel;
+	}
+
+	/*
+	Description: drops least recently used loaded entries until the cache is within its budget
+	PARAMS: None
+	RETURN: None
+	*/
+	private void evict() {
+		Iterator<Map.Entry<Path, Entry>> eldest = entries.entrySet().iterator();
+		while(cachedBytes > budget && eldest.hasNext()){
+			Entry entry = eldest.next().getValue();
+			if(entry.load.isDone()){
+				cachedBytes -= entry.bytes;
+				eldest.remove();
+			}
+		}
+	}
+
+	/*
+	Description: removes an entry if it is still the one cached for the path
+	PARAMS: path: Path
+			entry: Entry
+	RETURN: None
+	*/
+	private void remove(Path path, Entry entry) {
+		if(entries.get(path) == entry){
+			entries.remove(path);
+			cachedBytes -= entry.bytes;
+		}
+	}
+
+	/*
+	Description: empties the cache
+	PARAMS: None
+	RETURN: None
+	*/
+	public synchronized void clear() {
+		entries.clear();
+		cachedBytes = 0;
+	}
+
+	/*
+	Description: reads a weights file, dense, sparse or a tiled weights directory
+	PARAMS: weightsFile: String
+	RETURN: RecallKernel - the weights
+	*/
+	static RecallKernel read(String weightsFile) throws IOException {
+		if(TiledWeights.isTiled(weightsFile)){
+			return TiledWeights.open(weightsFile);
+		}
+		if(SparseWeights.isSparse(weightsFile)){
+			return SparseWeights.readFromFile(weightsFile);
+		}
+		if(QuantizedWeights.isQuantized(weightsFile)){
+			return QuantizedWeights.readFromFile(weightsFile);
+		}
+		return WeightMatrix.readFromFile(weightsFile);
+	}
+}
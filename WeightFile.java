@@ -0,0 +1,178 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: WeightFile reads and writes the binary trained weights format, and converts weights files between text and binary.
+			 Layout (little endian): a 32 byte header of magic "HOPW", version, dimension, stored pattern count (-1 when unknown),
+			 element width in bytes, symmetric packed flag, 2 reserved bytes and the CRC32 of the payload, followed by the
+			 payload: the packed upper triangle of WeightMatrix (or the full N x N matrix when the packed flag is 0).
+			 Reading maps the file with FileChannel.map and copies the payload straight into the weight array, no parsing.
+
+To convert a weights file (the output format follows the output extension, .bin for binary):
+	java WeightFile trainedWeights/weights100-5.txt trainedWeights/weights100-5.bin [pattern count]
+*/
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+public class WeightFile {
+	static final String EXTENSION = ".bin";
+	static final int MAGIC = 0x57504F48; // "HOPW" read little endian
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 32;
+	static final int CHECKSUM_OFFSET = 24; // the payload CRC32 is the last field of the header
+	static final int CHUNK_BYTES = 1 << 30;
+
+	/*
+	Description: converts a weights file, the input format is detected and the output format follows the output extension
+	PARAMS: args: String[] (input file, output file, optional stored pattern count for text input)
+	RETURN: None
+	*/
+	public static void main(String[] args) {
+		if(args.length < 2){
+			System.out.println("Usage: java WeightFile <input weights> <output weights> [pattern count]");
+			return;
+		}
+		try{
+			WeightMatrix weights = WeightMatrix.readFromFile(args[0]);
+			if(args.length > 2){
+				weights.numPatterns = Long.parseLong(args[2]);
+			}
+			weights.writeToFile(args[1]);
+			System.out.println("Converted " + args[0] + " (" + weights.dimension + " neurons, " + weights.width + " byte weights) to " + args[1]);
+		}catch(Exception e){
+			System.out.println("ERROR: " + e);
+		}
+	}
+
+	/*
+	Description: checks whether a file starts with the binary weights magic number
+	PARAMS: file: String
+	RETURN: boolean - true when the file is in the binary format
+	*/
+	static boolean isBinary(String file) throws IOException {
+		try(FileChannel channel = FileChannel.open(Path.of(file), StandardOpenOption.READ)){
+			ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+			while(magic.hasRemaining() && channel.read(magic) > 0){
+			}
+			return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+		}
+	}
+
+	/*
+	Description: writes a matrix in the binary format, checksumming the payload as it goes and filling in the header last
+	PARAMS: weights: WeightMatrix
+			file: String
+	RETURN: None
+	*/
+	static void write(WeightMatrix weights, String file) throws IOException {
+		try(FileChannel channel = FileChannel.open(Path.of(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+			CRC32 crc = new CRC32();
+			ByteBuffer chunk = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+			int size = weights.size();
+			int perChunk = chunk.capacity() / weights.width;
+			channel.position(HEADER_BYTES);
+			for(int start = 0; start < size; start += perChunk){
+				int count = Math.min(perChunk, size - start);
+				chunk.clear();
+				switch(weights.width){
+					case WeightMatrix.BYTE: chunk.put(weights.byteWeights, start, count); break;
+					case WeightMatrix.SHORT: chunk.asShortBuffer().put(weights.shortWeights, start, count); break;
+					default: chunk.asIntBuffer().put(weights.intWeights, start, count);
+				}
+				chunk.position(0).limit(count * weights.width);
+				crc.update(chunk);
+				chunk.position(0);
+				while(chunk.hasRemaining()){
+					channel.write(chunk);
+				}
+			}
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(weights.dimension).putLong(weights.numPatterns);
+			header.put((byte) weights.width).put((byte) 1).putShort((short) 0).putLong(crc.getValue());
+			header.flip();
+			channel.position(0);
+			while(header.hasRemaining()){
+				channel.write(header);
+			}
+		}
+	}
+
+	/*
+	Description: reads a binary weights file by mapping it and bulk copying the payload into a WeightMatrix
+	PARAMS: file: String
+	RETURN: WeightMatrix - the loaded matrix
+	*/
+	static WeightMatrix read(String file) throws IOException {
+		try(FileChannel channel = FileChannel.open(Path.of(file), StandardOpenOption.READ)){
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			if(header.getInt() != MAGIC){
+				throw new IOException(file + " is not a binary weights file");
+			}
+			int version = header.getInt();
+			if(version != VERSION){
+				throw new IOException(file + " has unsupported weights format version " + version);
+			}
+			int dimension = header.getInt();
+			long numPatterns = header.getLong();
+			int width = header.get();
+			boolean packed = header.get() == 1;
+			header.getShort();
+			long checksum = header.getLong();
+			if(width != WeightMatrix.BYTE && width != WeightMatrix.SHORT && width != WeightMatrix.INT){
+				throw new IOException(file + " has unsupported element width " + width);
+			}
+
+			long count = packed ? (long) dimension * (dimension - 1) / 2 : (long) dimension * dimension;
+			if(channel.size() != HEADER_BYTES + count * width){
+				throw new IOException(file + " is " + channel.size() + " bytes, expected " + (HEADER_BYTES + count * width));
+			}
+
+			WeightMatrix weights = new WeightMatrix(dimension, width == WeightMatrix.BYTE ? Byte.MAX_VALUE : width == WeightMatrix.SHORT ? Short.MAX_VALUE : Integer.MAX_VALUE);
+			weights.numPatterns = numPatterns;
+			CRC32 crc = new CRC32();
+			long position = HEADER_BYTES;
+			long remaining = count * width;
+			long element = 0;
+			int[] fullRow = packed ? null : new int[dimension];
+			while(remaining > 0){
+				long length = Math.min(remaining, CHUNK_BYTES - CHUNK_BYTES % 4);
+				MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				crc.update(region);
+				region.position(0);
+				region.order(ByteOrder.LITTLE_ENDIAN);
+				int items = (int) (length / width);
+				if(packed){
+					switch(width){
+						case WeightMatrix.BYTE: region.get(weights.byteWeights, (int) element, items); break;
+						case WeightMatrix.SHORT: region.asShortBuffer().get(weights.shortWeights, (int) element, items); break;
+						default: region.asIntBuffer().get(weights.intWeights, (int) element, items);
+					}
+				}else{
+					for(int k = 0; k < items; k++){
+						int i = (int) ((element + k) / dimension);
+						int j = (int) ((element + k) % dimension);
+						int value = (width == WeightMatrix.BYTE) ? region.get() : (width == WeightMatrix.SHORT) ? region.getShort() : region.getInt();
+						if(j > i){
+							weights.set(i, j, value);
+						}
+					}
+				}
+				element += items;
+				position += length;
+				remaining -= length;
+			}
+			if(crc.getValue() != checksum){
+				throw new IOException(file + " failed its checksum, the weights are corrupt");
+			}
+			weights.maxMagnitude = weights.largestMagnitude();
+			return weights;
+		}
+	}
+}
@@ -0,0 +1,545 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: WeightMatrix stores the symmetric, zero diagonal weight matrix of the Hopfield net. Only the upper triangle is kept,
+			 packed row by row into one flat primitive array of the narrowest integer type that can hold the weights (byte/short/int)
+*/
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+
+public class WeightMatrix implements RecallKernel {
+	static final int BYTE = 1, SHORT = 2, INT = 4;
+	static final FieldKernel KERNEL = FieldKernel.select();
+
+	int dimension, width;
+	long maxMagnitude;
+	long numPatterns; // number of stored patterns, -1 when unknown (text weights files do not record it)
+	byte[] byteWeights;
+	short[] shortWeights;
+	int[] intWeights;
+
+	/*
+	Description: constructor which allocates an all zero matrix wide enough for weights up to maxMagnitude
+	PARAMS: dimension: int (number of neurons)
+			maxMagnitude: long (largest absolute weight that will be stored, the pattern count for Hebbian training)
+	RETURN: None
+	*/
+	public WeightMatrix(int dimension, long maxMagnitude) {
+		long size = (long) dimension * (dimension - 1) / 2;
+		if(size > Integer.MAX_VALUE - 8){
+			throw new IllegalArgumentException("dimension " + dimension + " is too large for a packed weight matrix");
+		}
+		this.dimension = dimension;
+		this.maxMagnitude = maxMagnitude;
+		width = widthFor(maxMagnitude);
+		switch(width){
+			case BYTE: byteWeights = new byte[(int) size]; break;
+			case SHORT: shortWeights = new short[(int) size]; break;
+			default: intWeights = new int[(int) size];
+		}
+	}
+
+	/*
+	Description: picks the narrowest element width able to hold weights of the given magnitude
+	PARAMS: maxMagnitude: long
+	RETURN: int - BYTE, SHORT or INT
+	*/
+	static int widthFor(long maxMagnitude) {
+		if(maxMagnitude <= Byte.MAX_VALUE){
+			return BYTE;
+		}else if(maxMagnitude <= Short.MAX_VALUE){
+			return SHORT;
+		}else if(maxMagnitude <= Integer.MAX_VALUE){
+			return INT;
+		}
+		throw new IllegalArgumentException("weights of magnitude " + maxMagnitude + " do not fit in an int");
+	}
+
+	/*
+	Description: returns the offset in the packed array where row i (columns i+1 .. dimension-1) starts
+	PARAMS: i: int (row)
+	RETURN: int - offset of w[i][i+1]
+	*/
+	int rowStart(int i) {
+		return (int) ((long) i * (2L * dimension - i - 1) / 2);
+	}
+
+	/*
+	Description: returns the weight between two neurons
+	PARAMS: i: int
+			j: int
+	RETURN: int - w[i][j], 0 on the diagonal
+	*/
+	public int get(int i, int j) {
+		if(i == j){
+			return 0;
+		}
+		int index = (i < j) ? rowStart(i) + (j - i - 1) : rowStart(j) + (i - j - 1);
+		switch(width){
+			case BYTE: return byteWeights[index];
+			case SHORT: return shortWeights[index];
+			default: return intWeights[index];
+		}
+	}
+
+	/*
+	Description: sets the weight between two neurons (and by symmetry between j and i), widening the storage if needed.
+				 Diagonal values are not stored and are ignored
+	PARAMS: i: int
+			j: int
+			value: int
+	RETURN: None
+	*/
+	public void set(int i, int j, int value) {
+		if(i == j){
+			return;
+		}
+		ensureMagnitude(Math.abs((long) value));
+		int index = (i < j) ? rowStart(i) + (j - i - 1) : rowStart(j) + (i - j - 1);
+		switch(width){
+			case BYTE: byteWeights[index] = (byte) value; break;
+			case SHORT: shortWeights[index] = (short) value; break;
+			default: intWeights[index] = value;
+		}
+	}
+
+	/*
+	Description: makes sure weights up to the given magnitude can be stored, copying into a wider array when they cannot
+	PARAMS: magnitude: long
+	RETURN: None
+	*/
+	void ensureMagnitude(long magnitude) {
+		if(magnitude > maxMagnitude){
+			maxMagnitude = magnitude;
+		}
+		int newWidth = widthFor(maxMagnitude);
+		if(newWidth <= width){
+			return;
+		}
+		int size = size();
+		if(newWidth == SHORT){
+			shortWeights = new short[size];
+			for(int k = 0; k < size; k++){
+				shortWeights[k] = byteWeights[k];
+			}
+		}else{
+			intWeights = new int[size];
+			for(int k = 0; k < size; k++){
+				intWeights[k] = (width == BYTE) ? byteWeights[k] : shortWeights[k];
+			}
+			shortWeights = null;
+		}
+		byteWeights = null;
+		width = newWidth;
+	}
+
+	/*
+	Description: returns the number of stored (upper triangle) weights
+	PARAMS: None
+	RETURN: int
+	*/
+	int size() {
+		return (int) ((long) dimension * (dimension - 1) / 2);
+	}
+
+	/*
+	Description: scans the stored weights for the largest absolute value
+	PARAMS: None
+	RETURN: long
+	*/
+	long largestMagnitude() {
+		long largest = 0;
+		int size = size();
+		for(int k = 0; k < size; k++){
+			largest = Math.max(largest, Math.abs((long) valueAt(k)));
+		}
+		return largest;
+	}
+
+	/*
+	Description: returns a copy with every weight saturated to [-limit, limit], stored as bytes when limit fits (int8 for 127)
+	PARAMS: limit: int (largest magnitude kept)
+	RETURN: WeightMatrix - the clipped weights
+	*/
+	public WeightMatrix clip(int limit) {
+		if(limit < 1){
+			throw new IllegalArgumentException("clip limit " + limit + " must be at least 1");
+		}
+		WeightMatrix clipped = new WeightMatrix(dimension, Math.min(limit, maxMagnitude));
+		clipped.numPatterns = numPatterns;
+		int size = size();
+		for(int k = 0; k < size; k++){
+			int value = Math.max(-limit, Math.min(limit, valueAt(k)));
+			switch(clipped.width){
+				case BYTE: clipped.byteWeights[k] = (byte) value; break;
+				case SHORT: clipped.shortWeights[k] = (short) value; break;
+				default: clipped.intWeights[k] = value;
+			}
+		}
+		return clipped;
+	}
+
+	/*
+	Description: returns the number of bytes used by the weights
+	PARAMS: None
+	RETURN: long
+	*/
+	public long bytes() {
+		return (long) size() * width;
+	}
+
+	/*
+	Description: adds the outer product x * x^T of a bipolar pattern to the matrix (Hebbian learning), diagonal excluded
+	PARAMS: inputArr: int[] (bipolar pattern)
+			sign: int (1 to learn the pattern, -1 to unlearn it)
+	RETURN: None
+	*/
+	public void addOuterProduct(int[] inputArr, int sign) {
+		ensureMagnitude(maxMagnitude + 1);
+		if(numPatterns >= 0){
+			numPatterns += sign;
+		}
+		int index = 0;
+		for(int i = 0; i < dimension - 1; i++){
+			int xi = sign * inputArr[i];
+			switch(width){
+				case BYTE:
+					for(int j = i + 1; j < dimension; j++){
+						byteWeights[index++] += xi * inputArr[j];
+					}
+					break;
+				case SHORT:
+					for(int j = i + 1; j < dimension; j++){
+						shortWeights[index++] += xi * inputArr[j];
+					}
+					break;
+				default:
+					for(int j = i + 1; j < dimension; j++){
+						intWeights[index++] += xi * inputArr[j];
+					}
+			}
+		}
+	}
+
+	/*
+	Description: returns the packed weight at an offset of the flat array
+	PARAMS: index: int (offset into the packed upper triangle)
+	RETURN: int - the weight
+	*/
+	int valueAt(int index) {
+		switch(width){
+			case BYTE: return byteWeights[index];
+			case SHORT: return shortWeights[index];
+			default: return intWeights[index];
+		}
+	}
+
+	/*
+	Description: adds another matrix of the same dimension into this one, element by element
+	PARAMS: other: WeightMatrix (matrix to add, left unchanged)
+	RETURN: None
+	*/
+	public void add(WeightMatrix other) {
+		if(other.dimension != dimension){
+			throw new IllegalArgumentException("cannot add a " + other.dimension + " neuron matrix to a " + dimension + " neuron matrix");
+		}
+		ensureMagnitude(maxMagnitude + other.maxMagnitude);
+		numPatterns = (numPatterns < 0 || other.numPatterns < 0) ? -1 : numPatterns + other.numPatterns;
+		int size = size();
+		switch(width){
+			case BYTE:
+				for(int k = 0; k < size; k++){
+					byteWeights[k] += other.valueAt(k);
+				}
+				break;
+			case SHORT:
+				for(int k = 0; k < size; k++){
+					shortWeights[k] += other.valueAt(k);
+				}
+				break;
+			default:
+				for(int k = 0; k < size; k++){
+					intWeights[k] += other.valueAt(k);
+				}
+		}
+	}
+
+	/*
+	Description: computes the local field of every neuron, fields = W * yArr. Each packed row is walked once, contiguously,
+				 as a dot product for its own field and an axpy into the fields of the later neurons
+	PARAMS: yArr: int[] (current neuron values)
+			fields: int[] (output, overwritten)
+	RETURN: None
+	*/
+	public void multiply(int[] yArr, int[] fields) {
+		for(int i = 0; i < dimension; i++){
+			fields[i] = 0;
+		}
+		for(int i = 0; i < dimension - 1; i++){
+			int index = rowStart(i);
+			int len = dimension - i - 1;
+			switch(width){
+				case BYTE:
+					fields[i] += KERNEL.dot(byteWeights, index, yArr, i + 1, len);
+					KERNEL.axpy(byteWeights, index, yArr[i], fields, i + 1, len);
+					break;
+				case SHORT:
+					fields[i] += KERNEL.dot(shortWeights, index, yArr, i + 1, len);
+					KERNEL.axpy(shortWeights, index, yArr[i], fields, i + 1, len);
+					break;
+				default:
+					fields[i] += KERNEL.dot(intWeights, index, yArr, i + 1, len);
+					KERNEL.axpy(intWeights, index, yArr[i], fields, i + 1, len);
+			}
+		}
+	}
+
+	/*
+	Description: adds the contribution of every stride-th packed row, starting at row first, to fields. Running it for
+				 first = 0 .. stride-1 into separate arrays and summing them gives W * yArr, so threads can share a product
+	PARAMS: yArr: int[] (current neuron values)
+			fields: int[] (partial fields, added to)
+			first: int (first row)
+			stride: int (rows between the rows used)
+	RETURN: None
+	*/
+	public void multiplyRows(int[] yArr, int[] fields, int first, int stride) {
+		for(int i = first; i < dimension - 1; i += stride){
+			int index = rowStart(i);
+			int len = dimension - i - 1;
+			switch(width){
+				case BYTE:
+					fields[i] += KERNEL.dot(byteWeights, index, yArr, i + 1, len);
+					KERNEL.axpy(byteWeights, index, yArr[i], fields, i + 1, len);
+					break;
+				case SHORT:
+					fields[i] += KERNEL.dot(shortWeights, index, yArr, i + 1, len);
+					KERNEL.axpy(shortWeights, index, yArr[i], fields, i + 1, len);
+					break;
+				default:
+					fields[i] += KERNEL.dot(intWeights, index, yArr, i + 1, len);
+					KERNEL.axpy(intWeights, index, yArr[i], fields, i + 1, len);
+			}
+		}
+	}
+
+	/*
+	Description: computes the local fields of a whole batch of probes at once, fields = W * states, as a cache blocked
+				 matrix-matrix product. Both arrays are neuron major (probe b of neuron n is at n * batch + b) so the
+				 innermost loop runs over contiguous probes. Each weight is read once and applied to both halves of the matrix.
+	PARAMS: states: int[] (dimension * batch neuron values)
+			batch: int (number of probes)
+			fields: int[] (output, dimension * batch, overwritten)
+	RETURN: None
+	*/
+	public void multiplyBatch(int[] states, int batch, int[] fields) {
+		for(int k = 0; k < fields.length; k++){
+			fields[k] = 0;
+		}
+		// keep a block of rows and a block of columns of states/fields (about 128KB each) in cache
+		int block = Math.max(16, 32768 / batch);
+		for(int i0 = 0; i0 < dimension; i0 += block){
+			int i1 = Math.min(dimension, i0 + block);
+			for(int j0 = i0; j0 < dimension; j0 += block){
+				int j1 = Math.min(dimension, j0 + block);
+				for(int i = i0; i < i1; i++){
+					int rowI = i * batch;
+					int jStart = Math.max(j0, i + 1);
+					int index = rowStart(i) + (jStart - i - 1);
+					for(int j = jStart; j < j1; j++){
+						int w = valueAt(index++);
+						if(w == 0){
+							continue;
+						}
+						int rowJ = j * batch;
+						for(int b = 0; b < batch; b++){
+							fields[rowJ + b] += w * states[rowI + b];
+							fields[rowI + b] += w * states[rowJ + b];
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	Description: computes the local field of a single neuron, the sum over j of w[i][j] * yArr[j]. Row i of the matrix is
+				 column i of the upper triangle (j < i, one weight per packed row) followed by packed row i (j > i, contiguous)
+	PARAMS: i: int (neuron)
+			yArr: int[] (current neuron values)
+	RETURN: int - the local field
+	*/
+	public int dot(int i, int[] yArr) {
+		int sum = 0;
+		int index = i - 1;
+		for(int j = 0; j < i; j++){
+			sum += valueAt(index) * yArr[j];
+			index += dimension - j - 2;
+		}
+		int len = dimension - i - 1;
+		switch(width){
+			case BYTE: return sum + KERNEL.dot(byteWeights, rowStart(i), yArr, i + 1, len);
+			case SHORT: return sum + KERNEL.dot(shortWeights, rowStart(i), yArr, i + 1, len);
+			default: return sum + KERNEL.dot(intWeights, rowStart(i), yArr, i + 1, len);
+		}
+	}
+
+	/*
+	Description: adds scale times row i of the matrix to fields, used to update local fields when neuron i flips
+	PARAMS: i: int (neuron)
+			scale: int (change in the neuron's value)
+			fields: int[] (local fields to update)
+	RETURN: None
+	*/
+	public void addRow(int i, int scale, int[] fields) {
+		int index = i - 1;
+		for(int j = 0; j < i; j++){
+			fields[j] += scale * valueAt(index);
+			index += dimension - j - 2;
+		}
+		int len = dimension - i - 1;
+		switch(width){
+			case BYTE: KERNEL.axpy(byteWeights, rowStart(i), scale, fields, i + 1, len); break;
+			case SHORT: KERNEL.axpy(shortWeights, rowStart(i), scale, fields, i + 1, len); break;
+			default: KERNEL.axpy(intWeights, rowStart(i), scale, fields, i + 1, len);
+		}
+	}
+
+	/*
+	Description: adds scale times row i of the matrix to the fields of neurons from .. to-1 only, so threads can each
+				 update their own range of the fields after a flip
+	PARAMS: i: int (neuron)
+			scale: int (change in the neuron's value)
+			fields: int[] (local fields to update)
+			from: int (first neuron updated)
+			to: int (one past the last neuron updated)
+	RETURN: None
+	*/
+	public void addRow(int i, int scale, int[] fields, int from, int to) {
+		int end = Math.min(i, to);
+		if(from < end){
+			int index = rowStart(from) + (i - from - 1);
+			for(int j = from; j < end; j++){
+				fields[j] += scale * valueAt(index);
+				index += dimension - j - 2;
+			}
+		}
+		int start = Math.max(from, i + 1);
+		if(start < to){
+			int index = rowStart(i) + (start - i - 1);
+			switch(width){
+				case BYTE: KERNEL.axpy(byteWeights, index, scale, fields, start, to - start); break;
+				case SHORT: KERNEL.axpy(shortWeights, index, scale, fields, start, to - start); break;
+				default: KERNEL.axpy(intWeights, index, scale, fields, start, to - start);
+			}
+		}
+	}
+
+	public int dimension() {
+		return dimension;
+	}
+
+	/*
+	Description: the recall state of a weight matrix is the local field of every neuron
+	*/
+	public int[] newState() {
+		return new int[dimension];
+	}
+
+	public void initialize(int[] yArr, int[] state) {
+		multiply(yArr, state);
+	}
+
+	public int field(int neuron, int[] yArr, int[] state) {
+		return state[neuron];
+	}
+
+	public void flipped(int neuron, int delta, int[] state) {
+		addRow(neuron, delta, state);
+	}
+
+	/*
+	Description: writes the matrix out, in the binary format of WeightFile when the filename ends in .bin and as text otherwise
+	PARAMS: writeFile: String (filename for the weights)
+	RETURN: None
+	*/
+	public void writeToFile(String writeFile) throws IOException {
+		if(writeFile.endsWith(WeightFile.EXTENSION)){
+			WeightFile.write(this, writeFile);
+		}else{
+			writeText(writeFile);
+		}
+	}
+
+	/*
+	Description: reads a matrix written by writeToFile, telling the binary format from text by its header
+	PARAMS: readFile: String (filename storing trained weights)
+	RETURN: WeightMatrix - the loaded matrix
+	*/
+	public static WeightMatrix readFromFile(String readFile) throws IOException {
+		if(WeightFile.isBinary(readFile)){
+			return WeightFile.read(readFile);
+		}
+		return readText(readFile);
+	}
+
+	/*
+	Description: writes the full N x N matrix out as space separated text, one row per line
+	PARAMS: writeFile: String (filename for the weights)
+	RETURN: None
+	*/
+	void writeText(String writeFile) throws IOException {
+		try(BufferedWriter writer = new BufferedWriter(new FileWriter(writeFile))){
+			StringBuilder row = new StringBuilder();
+			for(int i = 0; i < dimension; i++){
+				row.setLength(0);
+				for(int j = 0; j < dimension; j++){
+					row.append(get(i, j)).append(' ');
+				}
+				writer.write(row.toString());
+				if(i+1 != dimension){
+					writer.write("\n");
+				}
+			}
+		}
+	}
+
+	/*
+	Description: reads a matrix written by writeText. The dimension is the number of values on the first line and
+				 the element width grows as larger weights are read. Text files do not record the pattern count
+	PARAMS: readFile: String (filename storing trained weights)
+	RETURN: WeightMatrix - the loaded matrix
+	*/
+	static WeightMatrix readText(String readFile) throws IOException {
+		try(BufferedReader reader = new BufferedReader(new FileReader(readFile))){
+			String line = reader.readLine();
+			if(line == null){
+				throw new IOException("empty weights file " + readFile);
+			}
+			String[] values = line.trim().split("\\s+");
+			int dimension = values.length;
+			WeightMatrix weights = new WeightMatrix(dimension, 0);
+			weights.numPatterns = -1;
+			for(int i = 0; i < dimension; i++){
+				if(i > 0){
+					line = reader.readLine();
+					if(line == null){
+						throw new IOException("weights file " + readFile + " has " + i + " rows, expected " + dimension);
+					}
+					values = line.trim().split("\\s+");
+				}
+				if(values.length != dimension){
+					throw new IOException("row " + i + " of " + readFile + " has " + values.length + " values, expected " + dimension);
+				}
+				for(int j = i + 1; j < dimension; j++){
+					weights.set(i, j, Integer.parseInt(values[j]));
+				}
+			}
+			return weights;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: FieldBenchmark measures the local field kernels that replaced calcYin: one neuron's field (dot), every
+			 field at once (multiply, run at the start of each recall) and the update after a flip (addRow)
+*/
+
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class FieldBenchmark {
+	@Param({"100", "900", "2500"})
+	int dimension;
+
+	@Param({"5", "50", "500"})
+	int patterns;
+
+	Object weights;
+	int[] yArr, fields;
+	int neuron;
+
+	@Setup
+	public void setup() throws Throwable {
+		weights = Hopfield.NEW_WEIGHT_MATRIX.invoke(dimension, 0L);
+		for(int[] vector : Hopfield.randomVectors(patterns, dimension)){
+			Hopfield.ADD_OUTER_PRODUCT.invoke(weights, vector, 1);
+		}
+		yArr = Hopfield.randomVectors(1, dimension)[0];
+		fields = new int[dimension];
+		neuron = dimension / 2;
+	}
+
+	@Benchmark
+	public int dot() throws Throwable {
+		return (int) Hopfield.DOT.invoke(weights, neuron, yArr);
+	}
+
+	@Benchmark
+	public int[] multiply() throws Throwable {
+		Hopfield.MULTIPLY.invoke(weights, yArr, fields);
+		return fields;
+	}
+
+	@Benchmark
+	public int[] addRow() throws Throwable {
+		Hopfield.ADD_ROW.invoke(weights, neuron, 2, fields);
+		return fields;
+	}
+}
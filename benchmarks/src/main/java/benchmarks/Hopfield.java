@@ -0,0 +1,137 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: Hopfield gives the benchmarks access to the Hopfield net classes. Those live in the default package, which
+			 Java code in a named package (JMH requires one) cannot import, so they are reached through method handles
+			 looked up once. Also writes the benchmark data sets with trainingFileGenerator's logic and a fixed seed, so
+			 every run and every commit measures the same inputs.
+*/
+
+package benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+final class Hopfield {
+	static final long SEED = 42;
+
+	static final Class<?> WEIGHT_MATRIX = type("WeightMatrix");
+	static final Class<?> RECALL_KERNEL = type("RecallKernel");
+
+	static final MethodHandle NEW_TRAINING = constructor("HopfieldTraining", String.class, String.class);
+	static final MethodHandle TRAIN = method("HopfieldTraining", "Train");
+	static final MethodHandle TRAIN_BIT_PACKED = method("HopfieldTraining", "TrainBitPacked");
+	static final MethodHandle TRAIN_PARALLEL = method("HopfieldTraining", "TrainParallel", ForkJoinPool.class);
+
+	static final MethodHandle NEW_TESTING = constructor("HopfieldTesting", String.class, String.class, String.class);
+	static final MethodHandle NEW_TESTING_WITH_KERNEL = constructor("HopfieldTesting", RECALL_KERNEL, String.class, String.class);
+	static final MethodHandle TEST = method("HopfieldTesting", "Test");
+
+	static final MethodHandle NEW_WEIGHT_MATRIX = constructor("WeightMatrix", int.class, long.class);
+	static final MethodHandle READ_WEIGHTS = method("WeightMatrix", "readFromFile", String.class);
+	static final MethodHandle WRITE_WEIGHTS = method("WeightMatrix", "writeToFile", String.class);
+	static final MethodHandle ADD_OUTER_PRODUCT = method("WeightMatrix", "addOuterProduct", int[].class, int.class);
+	static final MethodHandle MULTIPLY = method("WeightMatrix", "multiply", int[].class, int[].class);
+	static final MethodHandle DOT = method("WeightMatrix", "dot", int.class, int[].class);
+	static final MethodHandle ADD_ROW = method("WeightMatrix", "addRow", int.class, int.class, int[].class);
+
+	static final MethodHandle NEW_GENERATOR = constructor("trainingFileGenerator", long.class, int.class, int.class, boolean.class);
+	static final MethodHandle GENERATE = method("trainingFileGenerator", "generate");
+	static final MethodHandle WRITE_PATTERN_FILE = method("trainingFileGenerator", "write", Path.class, double.class);
+
+	private Hopfield() {
+	}
+
+	/*
+	Description: writes trainingFile.txt and testingFile-<noise>.txt for the given size into dir, always from SEED
+	PARAMS: dir: Path
+			dimension: int
+			patterns: int
+			noiseLevels: int... (percent of cells flipped in each testing file)
+	RETURN: None
+	*/
+	static void writeDataSets(Path dir, int dimension, int patterns, int... noiseLevels) throws Throwable {
+		Object generator = NEW_GENERATOR.invoke(SEED, dimension, patterns, false);
+		GENERATE.invoke(generator);
+		WRITE_PATTERN_FILE.invoke(generator, Path.of(trainingFile(dir)), -1.0);
+		for(int noise : noiseLevels){
+			WRITE_PATTERN_FILE.invoke(generator, Path.of(testingFile(dir, noise)), noise / 100.0);
+		}
+	}
+
+	static String trainingFile(Path dir) {
+		return dir.resolve("trainingFile.txt").toString();
+	}
+
+	static String testingFile(Path dir, int noise) {
+		return dir.resolve("testingFile-" + noise + ".txt").toString();
+	}
+
+	/*
+	Description: returns fixed-seed bipolar vectors for benchmarks that skip the files
+	PARAMS: count: int, dimension: int
+	RETURN: int[][]
+	*/
+	static int[][] randomVectors(int count, int dimension) {
+		Random random = new Random(SEED);
+		int[][] vectors = new int[count][dimension];
+		for(int[] vector : vectors){
+			for(int i = 0; i < dimension; i++){
+				vector[i] = random.nextBoolean() ? 1 : -1;
+			}
+		}
+		return vectors;
+	}
+
+	/*
+	Description: HopfieldTesting prints a message after every run, which would interleave with the JMH output
+	*/
+	static void silenceStdout() {
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	}
+
+	static void deleteRecursively(Path dir) throws IOException {
+		try(Stream<Path> paths = Files.walk(dir)){
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	private static Class<?> type(String name) {
+		try{
+			return Class.forName(name);
+		}catch(ClassNotFoundException e){
+			throw new IllegalStateException("hopfield classes are not on the classpath", e);
+		}
+	}
+
+	private static MethodHandle method(String type, String name, Class<?>... params) {
+		try{
+			Method method = type(type).getDeclaredMethod(name, params);
+			method.setAccessible(true);
+			return MethodHandles.lookup().unreflect(method);
+		}catch(ReflectiveOperationException e){
+			throw new IllegalStateException(type + "." + name + " not found", e);
+		}
+	}
+
+	private static MethodHandle constructor(String type, Class<?>... params) {
+		try{
+			Constructor<?> constructor = type(type).getDeclaredConstructor(params);
+			constructor.setAccessible(true);
+			return MethodHandles.lookup().unreflectConstructor(constructor);
+		}catch(ReflectiveOperationException e){
+			throw new IllegalStateException(type + " constructor not found", e);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: LoadBenchmark measures getting trained weights into memory: parsing the text weights file, mapping the
+			 binary one, and the whole HopfieldTesting constructor (weights plus opening the testing and results files)
+*/
+
+package benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class LoadBenchmark {
+	@Param({"100", "900", "2500"})
+	int dimension;
+
+	@Param({"50"})
+	int patterns;
+
+	Path dir;
+	String textWeights, binaryWeights, testingFile, resultsFile;
+
+	@Setup
+	public void setup() throws Throwable {
+		dir = Files.createTempDirectory("hopfield-load");
+		Hopfield.writeDataSets(dir, dimension, patterns, 25);
+		textWeights = dir.resolve("weights.txt").toString();
+		binaryWeights = dir.resolve("weights.bin").toString();
+		testingFile = Hopfield.testingFile(dir, 25);
+		resultsFile = dir.resolve("results.txt").toString();
+		Hopfield.TRAIN.invoke(Hopfield.NEW_TRAINING.invoke(Hopfield.trainingFile(dir), textWeights));
+		Hopfield.WRITE_WEIGHTS.invoke(Hopfield.READ_WEIGHTS.invoke(textWeights), binaryWeights);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		Hopfield.deleteRecursively(dir);
+	}
+
+	@Benchmark
+	public Object readTextWeights() throws Throwable {
+		return Hopfield.READ_WEIGHTS.invoke(textWeights);
+	}
+
+	@Benchmark
+	public Object readBinaryWeights() throws Throwable {
+		return Hopfield.READ_WEIGHTS.invoke(binaryWeights);
+	}
+
+	@Benchmark
+	public Object constructTesting() throws Throwable {
+		return Hopfield.NEW_TESTING.invoke(textWeights, testingFile, resultsFile);
+	}
+}
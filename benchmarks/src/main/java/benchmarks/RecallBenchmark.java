@@ -0,0 +1,66 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: RecallBenchmark measures a full HopfieldTesting.Test run, from opening the files to the last result written,
+			 over every noisy copy of the stored patterns
+*/
+
+package benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class RecallBenchmark {
+	@Param({"100", "900", "2500"})
+	int dimension;
+
+	@Param({"5", "50"})
+	int patterns;
+
+	@Param({"10", "25", "50"})
+	int noise;
+
+	Path dir;
+	String weightsFile, testingFile, resultsFile;
+
+	@Setup
+	public void setup() throws Throwable {
+		Hopfield.silenceStdout();
+		dir = Files.createTempDirectory("hopfield-recall");
+		Hopfield.writeDataSets(dir, dimension, patterns, noise);
+		weightsFile = dir.resolve("weights.bin").toString();
+		testingFile = Hopfield.testingFile(dir, noise);
+		resultsFile = dir.resolve("results.txt").toString();
+		Hopfield.TRAIN.invoke(Hopfield.NEW_TRAINING.invoke(Hopfield.trainingFile(dir), weightsFile));
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		Hopfield.deleteRecursively(dir);
+	}
+
+	@Benchmark
+	public void test() throws Throwable {
+		Hopfield.TEST.invoke(Hopfield.NEW_TESTING.invoke(weightsFile, testingFile, resultsFile));
+	}
+}
@@ -0,0 +1,88 @@
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: TrainingBenchmark measures HopfieldTraining end to end (read the training file, train, write the weights)
+			 for each training path, and updateWeightMatrix's outer product accumulation on its own
+*/
+
+package benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class TrainingBenchmark {
+	@Param({"100", "900", "2500"})
+	int dimension;
+
+	@Param({"5", "50", "500"})
+	int patterns;
+
+	Path dir;
+	String trainingFile, weightsFile;
+	int[][] vectors;
+	ForkJoinPool pool;
+
+	@Setup
+	public void setup() throws Throwable {
+		dir = Files.createTempDirectory("hopfield-training");
+		Hopfield.writeDataSets(dir, dimension, patterns);
+		trainingFile = Hopfield.trainingFile(dir);
+		weightsFile = dir.resolve("weights.txt").toString();
+		vectors = Hopfield.randomVectors(patterns, dimension);
+		pool = new ForkJoinPool();
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		pool.shutdown();
+		Hopfield.deleteRecursively(dir);
+	}
+
+	@Benchmark
+	public void train() throws Throwable {
+		Hopfield.TRAIN.invoke(Hopfield.NEW_TRAINING.invoke(trainingFile, weightsFile));
+	}
+
+	@Benchmark
+	public void trainBitPacked() throws Throwable {
+		Hopfield.TRAIN_BIT_PACKED.invoke(Hopfield.NEW_TRAINING.invoke(trainingFile, weightsFile));
+	}
+
+	@Benchmark
+	public void trainParallel() throws Throwable {
+		Hopfield.TRAIN_PARALLEL.invoke(Hopfield.NEW_TRAINING.invoke(trainingFile, weightsFile), pool);
+	}
+
+	/*
+	Description: updateWeightMatrix over every pattern, without the file reading and writing around it
+	*/
+	@Benchmark
+	public Object updateWeightMatrix() throws Throwable {
+		Object weights = Hopfield.NEW_WEIGHT_MATRIX.invoke(dimension, 0L);
+		for(int[] vector : vectors){
+			Hopfield.ADD_OUTER_PRODUCT.invoke(weights, vector, 1);
+		}
+		return weights;
+	}
+}
@@ -1,12 +1,20 @@
 /*
 Authors: Evan Scott, Kieran Kennedy, Sean Pala
-Last Date Modified: 4/14/24
+Last Date Modified: 10/18/26
 Description: Main method which abstracts the logic for the testing and training of hopfield net
 
 To run the program: 
-	javac validateInput.java testingInput.java trainingInput.java main.java HopfieldTesting.java  HopfieldTesting.java
+	javac --add-modules jdk.incubator.vector *.java
 
-	java main
+	java --add-modules jdk.incubator.vector main
+
+	(java main also works, local fields are then computed with the scalar loops instead of the Vector API)
+
+	java -Dhopfield.max.epochs=<n> --add-modules jdk.incubator.vector main caps recall at n epochs per image (1000 by default)
+
+	Or build with Maven (benchmarks are in benchmarks/pom.xml):
+	mvn -B package
+	java --add-modules jdk.incubator.vector -jar target/hopfield-1.0-SNAPSHOT.jar
 
 */
 
@@ -1,6 +1,6 @@
 /*
 Authors: Evan Scott, Kieran Kennedy, Sean Pala
-Last Date Modified: 4/10/24
+Last Date Modified: 10/18/26
 Description: trainingInput handles the retrieval of all necessary input from user that is required for training the hopfield net. Makes use of functions located in validateInput.java to ensure the validity of the input. 
 */
 
@@ -8,10 +8,10 @@ import java.util.Scanner;
 
 public class trainingInput {
     validateInput userInput = new validateInput();
-	String readFile, writeFile;
+	String readFile, writeFile, mode;
 	
         /*
-	Description: prompts user for all necessary information to train the hopfield net
+	Description: prompts user for all necessary information to train the hopfield net, or to update trained weights with more patterns
 	PARAMS: input: Scanner object
 	 	action: String convert to int
 	RETURN: None
@@ -19,15 +19,29 @@ public class trainingInput {
 	public void promptUser(Scanner input, String action) {
 		int typeAction = Integer.parseInt(action);
 
+		do {
+			System.out.println("Enter 1 to train new weight settings, 2 to learn the training data into existing weight settings, 3 to forget it from them:");
+			mode = input.nextLine();
+		} while(userInput.checkTrainingMode(mode));
+
 		do {
 			System.out.println("Enter the training data file name and ensure it is located in the TRAININGSETS subdirectory:");
                         readFile = input.nextLine();
 		} while(userInput.checkReadFile(readFile, typeAction));
 
+		// learning or forgetting updates weights that already exist, so the file must not be emptied by the write check
+		if(Integer.parseInt(mode) == 1) {
                 do {
                         System.out.println("Enter a file name to save the trained weight settings:");
                         writeFile = input.nextLine();
                         } while(userInput.validateWriteWeightsFile(writeFile));
+		}
+		else {
+			do {
+				System.out.println("Enter the file name with the trained weight settings to update and ensure it is located in the TRAINEDWEIGHTS subdirectory:");
+				writeFile = input.nextLine();
+			} while(userInput.checkReadWeightFile(writeFile));
+		}
                 
                 // add appropriate paths to the files provided
                 String readDataFile = "./trainingSets/" + readFile;
@@ -35,7 +49,12 @@ public class trainingInput {
 
                 // all necessary inputs have been acquired so begin training of hopfield net
 		HopfieldTraining hopfieldTrain = new HopfieldTraining(readDataFile, writeWeightFile);
-		hopfieldTrain.Train();
+		if(Integer.parseInt(mode) == 1) {
+			hopfieldTrain.Train();
+		}
+		else {
+			hopfieldTrain.Update(Integer.parseInt(mode) == 3);
+		}
 	}
 }
 
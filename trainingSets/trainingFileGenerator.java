@@ -1,149 +1,359 @@
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+/*
+Authors: Evan Scott, Kieran Kennedy, Sean Pala
+Last Date Modified: 10/18/26
+Description: trainingFileGenerator writes a training set of random unique patterns and, for each noise level, a testing set
+			 holding a noisy copy of every pattern. Everything comes from one seed, so the same arguments always give the
+			 same files whatever the number of threads. Pattern p is drawn from its own SplittableRandom, duplicates are
+			 found by the 64-bit hash of a pattern's bitset and redrawn (only the hashes and the seed of each pattern are
+			 kept, so memory does not grow with the dimension), and a noisy copy flips exactly noise * dimension distinct
+			 neurons. Every image takes the same number of bytes, so the files are written in blocks of images by a
+			 parallel stream, each block at its own offset. Files are in the ASCII format or bit-packed binary, both read by
+			 PatternReader. Binary layout (little endian): magic "HOPP", version, dimension, number of images, values per
+			 row, then each image as (dimension + 63) / 64 longs with bit i set when value i is 1 ('O').
+
+To run, from the trainingSets directory (testing sets go to ../testingSets unless --out gives one directory for all files):
+	java trainingFileGenerator <seed> <dimension> <patterns> [noise %...] [ascii|binary] [--out <directory>]
+	java trainingFileGenerator 7 100 5 10 25 50 75
+	java trainingFileGenerator 7 10000 1000000 10 binary --out /data/corpus
+With no arguments it prompts for the dimension and pattern count and writes 10, 25, 50 and 75% noise with a random seed.
+*/
+
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Random;
-import java.util.Set;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
-import java.lang.Math;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
 
 public class trainingFileGenerator {
-    public static void main(String[] args) {
-        Scanner kb = new Scanner(System.in);
-        System.out.println("Please enter dimensions followed by a space followed by number of patterns stored");
-        String input = kb.nextLine();
-        String params [] = input.split(" ");
-        
-        int dimensions = Integer.parseInt(params[0]);
-        double mDimensions = Double.parseDouble(params[0]);
-        int patternNumber = Integer.parseInt(params[1]);
-        String fileName = "trainingFile" + dimensions + "-" + patternNumber+".txt";
-
-        String testing10 = "../testingSets/testingFile" + dimensions + "-" + patternNumber + "-10"+".txt";
-        String testing25 = "../testingSets/testingFile" + dimensions + "-" + patternNumber + "-25"+".txt";
-        String testing50 = "../testingSets/testingFile" + dimensions + "-" + patternNumber + "-50"+".txt";
-        String testing75 = "../testingSets/testingFile" + dimensions + "-" + patternNumber + "-75"+".txt";
-
-
-        // Set to store unique matrices
-        Set<String> uniqueMatrices = new HashSet<>();
-        
-        // Random object for generating 'O' or ' '
-        Random random = new Random();
-        double dimension = Math.sqrt((double)(mDimensions));
-        // Generate matrices until we have 30 unique ones
-        while (uniqueMatrices.size() < patternNumber) {
-            StringBuilder matrix = new StringBuilder();
-            for (int i = 0; i < dimension; i++) {
-                for (int j = 0; j < dimension; j++) {
-                    // Append 'O' or ' ' randomly
-                    matrix.append(random.nextBoolean() ? 'O' : ' ');
-                }
-                matrix.append("\n"); // New line after each row
-            }
-            uniqueMatrices.add(matrix.toString());
-        }
-
-        // Writing the matrices to the file
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
-            writer.write(dimensions + " (dimension of the image vectors)\n"+patternNumber+" (number of the image vectors)\n\n");
-            for (String matrix : uniqueMatrices) {
-                writer.write(matrix);
-                writer.write("\n"); // Extra newline to separate matrices
-            }
-        } catch (IOException e) {
-            System.out.println("Error writing to file: " + e.getMessage());
-        }
-        
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(testing10))) {
-            writer.write(dimensions + " (dimension of the image vectors)\n"+patternNumber+" (number of the image vectors)\n\n");
-            for (String matrix : uniqueMatrices) {
-                char[] chars = matrix.toCharArray();
-                int numChanges = (int) (mDimensions*0.1);
-                for (int i = 0; i < numChanges; i++) {
-                    int index;
-                    do {
-                    index = random.nextInt(chars.length);
-                } while (chars[index] == '\n'); // Ensure we don't change newline characters
-
-            // Flip 'O' to ' ' and vice versa
-            chars[index] = chars[index] == 'O' ? ' ' : 'O';
-        }
-
-                writer.write(chars);
-                writer.write("\n"); // Extra newline to separate matrices
-            }
-        } catch (IOException e) {
-            System.out.println("Error writing to file: " + e.getMessage());
-        }
-
-
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(testing25))) {
-            writer.write(dimensions + " (dimension of the image vectors)\n"+patternNumber+" (number of the image vectors)\n\n");
-            for (String matrix : uniqueMatrices) {
-                char[] chars = matrix.toCharArray();
-                int numChanges = (int) (mDimensions*0.25);
-                for (int i = 0; i < numChanges; i++) {
-                    int index;
-                    do {
-                    index = random.nextInt(chars.length);
-                } while (chars[index] == '\n'); // Ensure we don't change newline characters
-
-            // Flip 'O' to ' ' and vice versa
-            chars[index] = chars[index] == 'O' ? ' ' : 'O';
-        }
-
-                writer.write(chars);
-                writer.write("\n"); // Extra newline to separate matrices
-            }
-        } catch (IOException e) {
-            System.out.println("Error writing to file: " + e.getMessage());
-        }
-
-                try (BufferedWriter writer = new BufferedWriter(new FileWriter(testing50))) {
-            writer.write(dimensions + " (dimension of the image vectors)\n"+patternNumber+" (number of the image vectors)\n\n");
-            for (String matrix : uniqueMatrices) {
-                char[] chars = matrix.toCharArray();
-                int numChanges = (int) (mDimensions*0.5);
-                for (int i = 0; i < numChanges; i++) {
-                    int index;
-                    do {
-                    index = random.nextInt(chars.length);
-                } while (chars[index] == '\n'); // Ensure we don't change newline characters
-
-            // Flip 'O' to ' ' and vice versa
-            chars[index] = chars[index] == 'O' ? ' ' : 'O';
-        }
-
-                writer.write(chars);
-                writer.write("\n"); // Extra newline to separate matrices
-            }
-        } catch (IOException e) {
-            System.out.println("Error writing to file: " + e.getMessage());
-        }
-
-                try (BufferedWriter writer = new BufferedWriter(new FileWriter(testing75))) {
-            writer.write(dimensions + " (dimension of the image vectors)\n"+patternNumber+" (number of the image vectors)\n\n");
-            for (String matrix : uniqueMatrices) {
-                char[] chars = matrix.toCharArray();
-                int numChanges = (int) (mDimensions*0.75);
-                for (int i = 0; i < numChanges; i++) {
-                    int index;
-                    do {
-                    index = random.nextInt(chars.length);
-                } while (chars[index] == '\n'); // Ensure we don't change newline characters
-
-            // Flip 'O' to ' ' and vice versa
-            chars[index] = chars[index] == 'O' ? ' ' : 'O';
-        }
-
-                writer.write(chars);
-                writer.write("\n"); // Extra newline to separate matrices
-            }
-        } catch (IOException e) {
-            System.out.println("Error writing to file: " + e.getMessage());
-        }
-
-        
-    }
-}
\ No newline at end of file
+	static final int MAGIC = 0x50504F48; // "HOPP" read little endian, must match PatternReader
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 20;
+	static final int BLOCK_BYTES = 1 << 20; // about this much is formatted per write
+
+	int dimension, count, words, numCols;
+	boolean binary;
+	long seed;
+	long[] patternSeeds; // the seed pattern p was drawn from, after any redraws of duplicates
+	ThreadLocal<long[]> scratch;
+
+	/*
+	Description: constructor for a generator
+	PARAMS: seed: long (seed of the whole corpus)
+			dimension: int (neurons per pattern)
+			count: int (number of unique patterns)
+			binary: boolean (bit-packed binary files instead of ASCII)
+	RETURN: None
+	*/
+	public trainingFileGenerator(long seed, int dimension, int count, boolean binary) {
+		if(dimension < 1 || count < 0){
+			throw new IllegalArgumentException("dimension must be positive and the pattern count not negative");
+		}
+		if(dimension < 62 && count > (1L << dimension)){
+			throw new IllegalArgumentException("there are only " + (1L << dimension) + " distinct patterns of dimension " + dimension);
+		}
+		this.seed = seed;
+		this.dimension = dimension;
+		this.count = count;
+		this.binary = binary;
+		words = (dimension + 63) >>> 6;
+		numCols = (int) Math.ceil(Math.sqrt(dimension));
+		scratch = ThreadLocal.withInitial(() -> new long[words]);
+	}
+
+	/*
+	Description: generates the training set and one testing set per noise level from the arguments, or from prompts
+	PARAMS: args: String[] (seed, dimension, pattern count, then noise percentages, the format and --out in any order)
+	RETURN: None
+	*/
+	public static void main(String[] args) {
+		try{
+			if(args.length == 0){
+				Scanner kb = new Scanner(System.in);
+				System.out.println("Please enter dimensions followed by a space followed by number of patterns stored");
+				String[] params = kb.nextLine().trim().split("\\s+");
+				writeCorpus(new SplittableRandom().nextLong(), Integer.parseInt(params[0]), Integer.parseInt(params[1]),
+					List.of(10.0, 25.0, 50.0, 75.0), false, null);
+			}else if(args.length < 3){
+				System.out.println("Usage: java trainingFileGenerator <seed> <dimension> <patterns> [noise %...] [ascii|binary] [--out <directory>]");
+			}else{
+				run(args);
+			}
+		}catch(Exception e){
+			System.out.println("ERROR: " + e);
+		}
+	}
+
+	/*
+	Description: generates the files the arguments ask for, also used by the generate jobs of BatchRunner
+	PARAMS: args: String[] (seed, dimension, pattern count, then noise percentages, the format and --out in any order)
+	RETURN: None
+	*/
+	static void run(String[] args) throws IOException {
+		if(args.length < 3){
+			throw new IllegalArgumentException("a corpus needs a seed, a dimension and a pattern count");
+		}
+		List<Double> noises = new ArrayList<>();
+		boolean binary = false;
+		String out = null;
+		for(int a = 3; a < args.length; a++){
+			if(args[a].equals("binary") || args[a].equals("ascii")){
+				binary = args[a].equals("binary");
+			}else if(args[a].equals("--out") && a + 1 < args.length){
+				out = args[++a];
+			}else{
+				noises.add(Double.parseDouble(args[a]));
+			}
+		}
+		writeCorpus(Long.parseLong(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]), noises, binary, out);
+	}
+
+	/*
+	Description: writes the training set and one testing set per noise level
+	PARAMS: seed: long
+			dimension: int
+			count: int (number of patterns)
+			noises: List<Double> (noise percentages)
+			binary: boolean (bit-packed binary files instead of ASCII)
+			out: String (directory for every file, created when missing, or null for . and ../testingSets)
+	RETURN: None
+	*/
+	static void writeCorpus(long seed, int dimension, int count, List<Double> noises, boolean binary, String out) throws IOException {
+		long start = System.nanoTime();
+		if(out != null){
+			Files.createDirectories(Path.of(out));
+		}
+		trainingFileGenerator generator = new trainingFileGenerator(seed, dimension, count, binary);
+		generator.generate();
+		String name = dimension + "-" + count;
+		String extension = binary ? ".pat" : ".txt";
+		Path training = Path.of(out == null ? "." : out, "trainingFile" + name + extension);
+		generator.write(training, -1);
+		for(double noise: noises){
+			String level = noise == Math.rint(noise) ? Long.toString((long) noise) : Double.toString(noise);
+			Path testing = Path.of(out == null ? "../testingSets" : out, "testingFile" + name + "-" + level + extension);
+			generator.write(testing, noise / 100.0);
+		}
+		System.out.printf("Wrote %d patterns of dimension %d with %d noise levels (seed %d) in %.1f ms%n", count, dimension, noises.size(), seed, (System.nanoTime() - start) / 1e6);
+	}
+
+	/*
+	Description: picks the seed of every pattern, redrawing a pattern whose bitset hash was already taken. Hashes are
+				 computed in parallel and claimed in pattern order, so the redraws do not depend on the threads
+	PARAMS: None
+	RETURN: None
+	*/
+	public void generate() {
+		patternSeeds = new long[count];
+		long[] hashes = new long[count];
+		IntStream.range(0, count).parallel().forEach(p -> {
+			patternSeeds[p] = patternSeed(p, 0);
+			hashes[p] = hash(pattern(patternSeeds[p], scratch.get()));
+		});
+
+		int size = 16;
+		while(size < count * 2L){
+			size <<= 1;
+		}
+		long[] table = new long[size];
+		long[] bits = new long[words];
+		for(int p = 0; p < count; p++){
+			for(int attempt = 1; !claim(table, hashes[p]); attempt++){
+				patternSeeds[p] = patternSeed(p, attempt);
+				hashes[p] = hash(pattern(patternSeeds[p], bits));
+			}
+		}
+	}
+
+	/*
+	Description: derives the seed of one draw of a pattern
+	PARAMS: p: int (pattern)
+			attempt: int (0 for the first draw, then one more per duplicate)
+	RETURN: long
+	*/
+	long patternSeed(int p, int attempt) {
+		return seed + (p + 1) * 0x9E3779B97F4A7C15L + attempt * 0xC2B2AE3D27D4EB4FL;
+	}
+
+	/*
+	Description: draws a pattern as a bitset, bits past the dimension are 0
+	PARAMS: patternSeed: long
+			bits: long[] (receives the pattern, at least words long)
+	RETURN: long[] - bits
+	*/
+	long[] pattern(long patternSeed, long[] bits) {
+		SplittableRandom random = new SplittableRandom(patternSeed);
+		for(int w = 0; w < words; w++){
+			bits[w] = random.nextLong();
+		}
+		bits[words - 1] &= lastWordMask();
+		return bits;
+	}
+
+	/*
+	Description: returns the valid bits of the last word of a pattern
+	PARAMS: None
+	RETURN: long
+	*/
+	long lastWordMask() {
+		return (dimension & 63) == 0 ? -1L : (1L << dimension) - 1;
+	}
+
+	/*
+	Description: hashes a pattern bitset
+	PARAMS: bits: long[]
+	RETURN: long - the hash, never 0
+	*/
+	long hash(long[] bits) {
+		long h = dimension;
+		for(int w = 0; w < words; w++){
+			h = (h ^ bits[w]) * 0x9E3779B97F4A7C15L;
+			h ^= h >>> 32;
+		}
+		return h == 0 ? 1 : h;
+	}
+
+	/*
+	Description: adds a hash to the open addressing table of patterns kept so far. Two different patterns with the same
+				 hash count as duplicates, which only costs a redraw
+	PARAMS: table: long[] (0 marks an empty slot)
+			h: long (hash of the pattern)
+	RETURN: boolean - false when the hash is already in the table
+	*/
+	static boolean claim(long[] table, long h) {
+		int mask = table.length - 1;
+		for(int slot = (int) (h ^ (h >>> 32)) & mask; ; slot = (slot + 1) & mask){
+			if(table[slot] == 0){
+				table[slot] = h;
+				return true;
+			}
+			if(table[slot] == h){
+				return false;
+			}
+		}
+	}
+
+	/*
+	Description: flips exactly flips distinct neurons of a pattern. When most neurons flip the ones left alone are picked
+				 instead, so picking never has to search a nearly full set
+	PARAMS: bits: long[] (pattern, changed in place)
+			flips: int (neurons to flip)
+			random: SplittableRandom
+			picked: long[] (scratch of words longs)
+	RETURN: None
+	*/
+	void addNoise(long[] bits, int flips, SplittableRandom random, long[] picked) {
+		boolean invert = flips > dimension / 2;
+		int picks = invert ? dimension - flips : flips;
+		Arrays.fill(picked, 0, words, 0);
+		for(int k = 0; k < picks; ){
+			int i = random.nextInt(dimension);
+			if((picked[i >>> 6] & (1L << i)) == 0){
+				picked[i >>> 6] |= 1L << i;
+				k++;
+			}
+		}
+		for(int w = 0; w < words; w++){
+			bits[w] ^= invert ? ~picked[w] : picked[w];
+		}
+		bits[words - 1] &= lastWordMask();
+	}
+
+	/*
+	Description: writes every pattern, or a noisy copy of every pattern, to a file. Blocks of images are formatted and
+				 written by a parallel stream at their own offsets
+	PARAMS: file: Path
+			noise: double (fraction of neurons flipped, negative for the patterns themselves)
+	RETURN: None
+	*/
+	public void write(Path file, double noise) throws IOException {
+		byte[] header = binary ? binaryHeader() : (dimension + " (dimension of the image vectors)\n" + count + " (number of the image vectors)\n\n").getBytes(StandardCharsets.US_ASCII);
+		int recordBytes = binary ? 8 * words : dimension + (dimension + numCols - 1) / numCols + 1;
+		int perBlock = Math.max(1, BLOCK_BYTES / recordBytes);
+		int blocks = (count + perBlock - 1) / perBlock;
+		int flips = noise < 0 ? 0 : (int) (dimension * noise);
+		ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(perBlock * recordBytes).order(ByteOrder.LITTLE_ENDIAN));
+
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+			writeFully(channel, ByteBuffer.wrap(header), 0);
+			IntStream.range(0, blocks).parallel().forEach(b -> {
+				ByteBuffer buffer = buffers.get();
+				buffer.clear();
+				long[] bits = scratch.get();
+				long[] picked = new long[words];
+				int first = b * perBlock;
+				int last = Math.min(count, first + perBlock);
+				for(int p = first; p < last; p++){
+					pattern(patternSeeds[p], bits);
+					if(flips > 0){
+						addNoise(bits, flips, new SplittableRandom(patternSeeds[p] ^ (flips * 0xBF58476D1CE4E5B9L)), picked);
+					}
+					if(binary){
+						for(int w = 0; w < words; w++){
+							buffer.putLong(bits[w]);
+						}
+					}else{
+						putAscii(bits, buffer);
+					}
+				}
+				buffer.flip();
+				try{
+					writeFully(channel, buffer, header.length + (long) first * recordBytes);
+				}catch(IOException e){
+					throw new UncheckedIOException(e);
+				}
+			});
+		}catch(UncheckedIOException e){
+			throw e.getCause();
+		}
+	}
+
+	/*
+	Description: formats one image as rows of 'O'/' ' followed by the blank line that separates images
+	PARAMS: bits: long[] (the image)
+			buffer: ByteBuffer
+	RETURN: None
+	*/
+	void putAscii(long[] bits, ByteBuffer buffer) {
+		for(int i = 0; i < dimension; i++){
+			buffer.put((bits[i >>> 6] & (1L << i)) != 0 ? (byte) 'O' : (byte) ' ');
+			if((i + 1) % numCols == 0 || i + 1 == dimension){
+				buffer.put((byte) '\n');
+			}
+		}
+		buffer.put((byte) '\n');
+	}
+
+	/*
+	Description: returns the header of a binary pattern file
+	PARAMS: None
+	RETURN: byte[]
+	*/
+	byte[] binaryHeader() {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(dimension).putInt(count).putInt(numCols);
+		return header.array();
+	}
+
+	/*
+	Description: writes a whole buffer at a file offset
+	PARAMS: channel: FileChannel
+			buffer: ByteBuffer
+			position: long
+	RETURN: None
+	*/
+	static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while(buffer.hasRemaining()){
+			position += channel.write(buffer, position);
+		}
+	}
+}
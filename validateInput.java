@@ -31,6 +31,22 @@ public class validateInput {
 		}	
 	}
 
+	/*
+	Description: checks whether the training mode inputted by user is one of the valid options
+	PARAMS: mode: String
+	RETURN: boolean - true: invalid so prompt user again
+					  false: valid value entry
+	*/
+	public boolean checkTrainingMode(String mode) {
+		try {
+			userAction = Integer.parseInt(mode);
+			return userAction < 1 || userAction > 3;
+		} catch(NumberFormatException e) {
+			System.out.println("Invalid input. Please enter an integer.");
+			return true;
+		}
+	}
+
 	/*
 	Description: validates the ability to open data file for reading from training/testing subdir provided by user
 	PARAMS: file: String (filename)